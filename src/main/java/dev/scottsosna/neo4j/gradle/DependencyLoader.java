@@ -4,31 +4,43 @@
 
 package dev.scottsosna.neo4j.gradle;
 
+import dev.scottsosna.neo4j.gradle.aggregate.AggregatedDependency;
+import dev.scottsosna.neo4j.gradle.aggregate.ExternalAggregator;
 import dev.scottsosna.neo4j.gradle.node.Artifact;
-import dev.scottsosna.neo4j.gradle.relationship.ConfigurationType;
+import dev.scottsosna.neo4j.gradle.parse.DependencyRecord;
+import dev.scottsosna.neo4j.gradle.parse.LockfileParser;
+import dev.scottsosna.neo4j.gradle.parse.ReportParser;
+import dev.scottsosna.neo4j.gradle.parse.StringPool;
 import dev.scottsosna.neo4j.gradle.relationship.DependsOn;
-import dev.scottsosna.neo4j.gradle.relationship.ResolutionType;
-import org.neo4j.ogm.config.Configuration;
-import org.neo4j.ogm.cypher.BooleanOperator;
-import org.neo4j.ogm.cypher.ComparisonOperator;
-import org.neo4j.ogm.cypher.Filter;
-import org.neo4j.ogm.cypher.Filters;
-import org.neo4j.ogm.session.Session;
+import dev.scottsosna.neo4j.gradle.sink.BatchedPurge;
+import dev.scottsosna.neo4j.gradle.sink.ConcurrentNeo4jWriter;
+import dev.scottsosna.neo4j.gradle.sink.GraphSink;
+import dev.scottsosna.neo4j.gradle.sink.InMemoryGraphSink;
+import dev.scottsosna.neo4j.gradle.sink.Neo4jGraphSink;
+import dev.scottsosna.neo4j.gradle.sink.NullGraphSink;
+import dev.scottsosna.neo4j.gradle.shard.ShardRouter;
+import dev.scottsosna.neo4j.gradle.shard.ShardTarget;
+import dev.scottsosna.neo4j.gradle.snapshot.SnapshotReader;
+import dev.scottsosna.neo4j.gradle.snapshot.SnapshotWriter;
 import org.neo4j.ogm.session.SessionFactory;
-import org.neo4j.ogm.transaction.Transaction;
 
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Stack;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -43,42 +55,151 @@ public class DependencyLoader {
     private String[][] artifactMapping;
 
     /**
-     * Session factory for connecting to Neo4j database
+     * Each target the reports are loaded into, by name, with the router choosing the target for each project
      */
-    private final SessionFactory sessionFactory;
+    private final Map<String, Shard> shards = new LinkedHashMap<>();
+    private ShardRouter router = new ShardRouter(new String[0][2]);
 
-    //  Configuration info for connecting to the Neo4J database
-    private static final String SERVER_URI = "bolt://localhost";
-    private static final String SERVER_USERNAME = "neo4j";
-    private static final String SERVER_PASSWORD = "password";
+    /**
+     * Values parsed from every report in this load share a single copy
+     */
+    private final StringPool stringPool = new StringPool();
+
+    /**
+     * Parses the Gradle dependency reports, independent of the database
+     */
+    private final ReportParser parser = new ReportParser(Boolean.getBoolean(PARALLEL_PARSE_PROPERTY), stringPool);
+    private final LockfileParser lockfileParser = new LockfileParser(stringPool);
+
+    /**
+     * When set, the parsed reports are also written to a snapshot for later replay
+     */
+    private SnapshotWriter snapshotWriter;
+
+    /**
+     * Number of threads loading reports concurrently, when the sink allows it
+     */
+    private final int writers;
+    private boolean concurrent;
+
+    /**
+     * Notified whenever loaded data is committed, e.g. to invalidate cached query results
+     */
+    private final List<Runnable> commitListeners = new CopyOnWriteArrayList<>();
+
+    //  Totals for reporting the throughput of the run
+    private final AtomicLong loadedRecords = new AtomicLong();
+    private long started;
 
-    //  Each level in gradle is prefixed with a character and 4 spaces, so always substring 5 characters for each
-    //  level, either to go one dependency level deeper or to extract the artifact information
-    private static final int GRADLE_LEVEL_WIDTH = 5;
+    //  System properties naming the file defining the Neo4J targets (see ShardTarget) and the file routing
+    //  projects to them (see ShardRouter).  Without targets everything is loaded into the default database on
+    //  localhost.
+    private static final String TARGETS_PROPERTY = "loader.targets";
+    private static final String ROUTES_PROPERTY = "loader.routes";
+
+    //  System property naming the snapshot file the parsed reports are written to.
+    private static final String SNAPSHOT_PROPERTY = "loader.snapshot";
+
+    //  System property selecting where the dependencies are loaded: neo4j (default), memory or null
+    private static final String SINK_PROPERTY = "loader.sink";
+
+    //  System property enabling parallel parsing of the independent sections of each report
+    private static final String PARALLEL_PARSE_PROPERTY = "loader.parse.parallel";
+
+    //  System properties for loading reports concurrently: number of writer threads, dependencies written per
+    //  transaction and the number of attempts for transactions failing with transient errors such as deadlocks.
+    private static final String WRITERS_PROPERTY = "loader.writers";
+    private static final String WRITERS_BATCH_PROPERTY = "loader.writers.batch";
+    private static final String WRITERS_ATTEMPTS_PROPERTY = "loader.writers.attempts";
+
+    //  System properties for combining dependencies across all reports before loading: the memory budget in MB
+    //  and the directory where sorted runs are spilled when the budget is exceeded.
+    private static final String AGGREGATE_PROPERTY = "loader.aggregate";
+    private static final String AGGREGATE_DIRECTORY_PROPERTY = "loader.aggregate.dir";
+
+    //  System properties for purging the database in batches: the batch size, which enables batched purging,
+    //  and optionally the comma-separated sources (project names) and/or node labels the purge is limited to.
+    //  Limiting the purge also enables batched purging, with the default batch size unless one is given.
+    private static final String PURGE_BATCH_PROPERTY = "loader.purge.batch";
+    private static final String PURGE_SOURCES_PROPERTY = "loader.purge.sources";
+    private static final String PURGE_LABELS_PROPERTY = "loader.purge.labels";
+    private static final int DEFAULT_PURGE_BATCH = 10000;
+
+    //  Number of combined dependencies loaded in a single transaction
+    private static final int AGGREGATE_BATCH = 10000;
+
+    //  When loading into multiple targets, number of parsed reports waiting to be loaded per loading thread
+    private static final int SHARD_QUEUE_PER_THREAD = 2;
 
-    //  Important Gradle Strings that we need to look for
     private static final String ARTIFACT_SEPARATOR = ":";
-    private static final String GRADLE_CLASSPATH = "Classpath";
-    private static final String GRADLE_ARTIFACT_CURRENT_LEVEL = "+";
-    private static final String GRADLE_ARTIFACT_LAST_LEVEL = "\\";
-    private static final String GRADLE_ARTIFACT_NEXT_LEVEL = "|";
-    private static final String GRADLE_PROJECT = "Project '";
-    private static final String GRADLE_RESOLVED_INDICATION = "->";
-    private static final String GRADLE_ROOT_PROJECT = "Root project '";
 
     //  Default artifact types that should always be present
     private static final String ARTIFACT_TYPE_EXTERNAL = "EXTERNAL";
-    private static final String ARTIFACT_TYPE_INTERNAL = "INTERNAL";
-    private static final String ARTIFACT_TYPE_PROJECT = "PROJECT";
 
     /**
      * Constructor
+     * @throws IllegalStateException thrown if the targets or routes are configured but can't be loaded
      */
     public DependencyLoader(String artifactMappingFile) {
 
-        //  Define session factory for connecting to Neo4j database
-        Configuration configuration = new Configuration.Builder().uri(SERVER_URI).credentials(SERVER_USERNAME, SERVER_PASSWORD).build();
-        sessionFactory = new SessionFactory(configuration, "dev.scottsosna.neo4j.gradle.node", "dev.scottsosna.neo4j.gradle.relationship");
+        //  Everything is loaded into the Neo4J database unless a different sink is requested, usually to
+        //  measure the parser's throughput or to run without a database.
+        String sinkType = System.getProperty(SINK_PROPERTY, "neo4j");
+        writers = Math.max(1, Integer.getInteger(WRITERS_PROPERTY, 1));
+
+        //  Only the database can be written to concurrently.
+        concurrent = writers > 1 && !"memory".equals(sinkType) && !"null".equals(sinkType);
+
+        //  Each target gets its own sink, and its own session factory and connection pool when loading into Neo4J.
+        //  With the memory or null sink, each target is a stand-in for its database.
+        Map<String, ShardTarget> targets = loadTargets();
+        Integer aggregateMegabytes = Integer.getInteger(AGGREGATE_PROPERTY);
+
+        //  A purge limited to sources or labels must never fall back to purging everything.
+        List<String> purgeSources = splitProperty(PURGE_SOURCES_PROPERTY);
+        List<String> purgeLabels = splitProperty(PURGE_LABELS_PROPERTY);
+        Integer purgeBatch = Integer.getInteger(PURGE_BATCH_PROPERTY);
+        if (purgeBatch == null && (!purgeSources.isEmpty() || !purgeLabels.isEmpty())) {
+            purgeBatch = DEFAULT_PURGE_BATCH;
+        }
+
+        for (ShardTarget target : targets.values()) {
+            Shard shard = new Shard(target.getName());
+            if ("memory".equals(sinkType)) {
+                shard.sink = new InMemoryGraphSink();
+            } else if ("null".equals(sinkType)) {
+                shard.sink = new NullGraphSink();
+            } else {
+                //  Define session factory for connecting to Neo4j database
+                SessionFactory sessionFactory = target.createSessionFactory("dev.scottsosna.neo4j.gradle.node", "dev.scottsosna.neo4j.gradle.relationship");
+                shard.sink = new Neo4jGraphSink(sessionFactory,
+                                                purgeBatch == null ? null : new BatchedPurge(sessionFactory, purgeBatch,
+                                                                                             purgeSources, purgeLabels));
+
+                //  Also used without concurrent writers, for lockfiles.
+                shard.concurrentWriter = new ConcurrentNeo4jWriter(sessionFactory,
+                                                                   Integer.getInteger(WRITERS_BATCH_PROPERTY, 1000),
+                                                                   Integer.getInteger(WRITERS_ATTEMPTS_PROPERTY, 5));
+            }
+
+            //  The memory budget is shared by all targets.
+            if (aggregateMegabytes != null) {
+                shard.aggregator = new ExternalAggregator(aggregateMegabytes * 1024L * 1024L / targets.size(),
+                                                          new File(System.getProperty(AGGREGATE_DIRECTORY_PROPERTY, System.getProperty("java.io.tmpdir"))).toPath());
+            }
+
+            shards.put(target.getName(), shard);
+        }
+
+        //  Each target loads on its own threads so that loads to different targets run in parallel, with the
+        //  number of reports waiting for each target bounded to keep parsing from running too far ahead.
+        if (shards.size() > 1) {
+            int threads = concurrent ? writers : 1;
+            for (Shard one : shards.values()) {
+                one.executor = Executors.newFixedThreadPool(threads);
+                one.queued = new Semaphore(threads * SHARD_QUEUE_PER_THREAD);
+            }
+        }
 
         if (artifactMappingFile != null) {
             //  Try and load the mappings from an external file.
@@ -105,20 +226,65 @@ public class DependencyLoader {
             File argFile = new File(args[0]);
             if (argFile.exists()) {
 
-                //  Create the loader instance and purge the database of the previous run.
-                DependencyLoader loader = new DependencyLoader(args.length >= 2 ? args[1] : null);
-                loader.purgeDatabase();
+                //  A snapshot is only written when parsing reports: replaying already has one, and writing would
+                //  replace the snapshot being replayed (or any other) with an empty one.
+                boolean replay = argFile.isFile() && SnapshotReader.isSnapshot(argFile);
+                String snapshotFile = System.getProperty(SNAPSHOT_PROPERTY);
+                if (snapshotFile != null && replay) {
+                    System.out.println ("Replaying " + argFile.getName() + ", no snapshot written.");
+                    snapshotFile = null;
+                } else if (snapshotFile != null && sameFile(argFile, new File(snapshotFile))) {
+                    System.out.println ("Snapshot " + snapshotFile + " would overwrite the input being loaded, nothing loaded.");
+                    return;
+                }
+
+                //  Create the loader instance and purge the database of the previous run.  Nothing is purged or
+                //  loaded when the targets can't be determined.
+                DependencyLoader loader;
+                try {
+                    loader = new DependencyLoader(args.length >= 2 ? args[1] : null);
+                } catch (IllegalStateException e) {
+                    System.out.println (e.getMessage() + ", nothing loaded.");
+                    return;
+                }
+
+                //  Optionally keep the parsed results as a snapshot that can be replayed later, opened before
+                //  purging so that a snapshot which can't be written doesn't leave an empty database behind.
+                if (snapshotFile != null) {
+                    try {
+                        loader.snapshotWriter = new SnapshotWriter(new File(snapshotFile).toPath());
+                    } catch (IOException e) {
+                        System.out.println ("Exception opening snapshot " + snapshotFile + ": " + e + ", nothing loaded.");
+                        loader.close();
+                        return;
+                    }
+                }
 
-                //  If the CLI is a file, then processed individually; otherwise process all files in directory
-                if (argFile.isFile()) {
-                    loader.process(argFile);
-                } else if (argFile.isDirectory()) {
-                    for (File one: argFile.listFiles()) {
-                        //  only process files in this directory, do not navigate deeper
-                        if (one.isFile()) {
-                            loader.process(one);
+                loader.purgeDatabase();
+                loader.started = System.currentTimeMillis();
+
+                try {
+                    //  If the CLI is a file, then processed individually; otherwise process all files in directory
+                    if (replay) {
+                        loader.replay(argFile);
+                    } else if (argFile.isFile()) {
+                        loader.process(argFile);
+                    } else if (argFile.isDirectory()) {
+                        List<Runnable> tasks = new ArrayList<>();
+                        for (File one: argFile.listFiles()) {
+                            //  only process files in this directory, do not navigate deeper
+                            if (one.isFile()) {
+                                tasks.add(() -> loader.process(one));
+                            }
                         }
+                        loader.run(tasks);
                     }
+
+                    loader.drain();
+                    loader.loadAggregated();
+                    loader.reconcileProjects();
+                } finally {
+                    loader.close();
                 }
             }
         } else {
@@ -126,12 +292,104 @@ public class DependencyLoader {
         }
     }
 
+    /**
+     * @return true when both name the same file, or the file is within the directory
+     */
+    private static boolean sameFile (final File input,
+                                     final File snapshot) {
+        try {
+            File canonical = snapshot.getCanonicalFile();
+            return canonical.equals(input.getCanonicalFile()) ||
+                   (input.isDirectory() && input.getCanonicalFile().equals(canonical.getParentFile()));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Register a listener notified whenever loaded data is committed, such as
+     * {@link dev.scottsosna.neo4j.gradle.query.DependencyQueryService#invalidate()}.
+     * @param listener called after each commit, possibly from multiple threads
+     */
+    public void addCommitListener (final Runnable listener) {
+        commitListeners.add(listener);
+    }
+
+    /**
+     * Mark the target as loaded, for readers in other processes, and notify the listeners that loaded data was
+     * committed.  The data is committed whether or not the marker is updated, so failing to update it only means
+     * readers elsewhere see the load later.
+     * @param shard the target committed to
+     */
+    private void committed (final Shard shard) {
+        try {
+            shard.sink.markLoaded();
+        } catch (RuntimeException e) {
+            System.out.println("Exception marking" + shard.label() + " loaded: " + e);
+        }
+        commitListeners.forEach(Runnable::run);
+    }
+
     /**
      * Always purge the Neo4J database to start fresh when loading the Gradle dependencies
      */
     private void purgeDatabase() {
-        Session session = sessionFactory.openSession();
-        session.purgeDatabase();
+        eachShard(shard -> {
+            shard.sink.purge();
+            if (shard.concurrentWriter != null) {
+                shard.concurrentWriter.prepare();
+            }
+        });
+    }
+
+    /**
+     * Load the targets from the file named by the system property, the default database when none are configured
+     * @return the targets, by name
+     * @throws IllegalStateException thrown if the targets or routes are configured but can't be loaded
+     */
+    private Map<String, ShardTarget> loadTargets() {
+
+        Map<String, ShardTarget> targets = new LinkedHashMap<>();
+        String targetsFile = System.getProperty(TARGETS_PROPERTY);
+        String routesFile = System.getProperty(ROUTES_PROPERTY);
+        try {
+            if (targetsFile != null) {
+                targets.putAll(ShardTarget.load(new File(targetsFile)));
+            }
+            if (routesFile != null) {
+                router = ShardRouter.load(new File(routesFile));
+            }
+        } catch (IOException e) {
+            //  Loading anywhere else, such as the default target, would purge a database that wasn't meant to be.
+            throw new IllegalStateException("Exception processing targets: " + e, e);
+        }
+
+        if (targets.isEmpty() && targetsFile != null) {
+            throw new IllegalStateException("No targets defined in " + targetsFile);
+        }
+        if (targets.isEmpty()) {
+            targets.put(ShardTarget.DEFAULT_NAME, ShardTarget.defaultTarget());
+        }
+
+        //  Everything is validated before anything is purged: a report routed nowhere would be skipped after its
+        //  target's database was already purged.
+        if (routesFile != null && targets.size() == 1) {
+            throw new IllegalStateException("Routes " + routesFile + " require more than one target");
+        }
+        for (String[] one : router.getRoutes()) {
+            if (!targets.containsKey(one[1])) {
+                throw new IllegalStateException("Route " + one[0] + " is to undefined target " + one[1]);
+            }
+        }
+        if (targets.size() > 1 && !targets.containsKey(ShardTarget.DEFAULT_NAME)) {
+            throw new IllegalStateException("No target named " + ShardTarget.DEFAULT_NAME + " in " + targetsFile + " for projects not routed elsewhere");
+        }
+        if (targets.size() > 1) {
+            System.out.println ("Loading into " + targets.size() + " targets: " + targets.values());
+        }
+
+
+        return targets;
     }
 
     /**
@@ -139,341 +397,413 @@ public class DependencyLoader {
      */
     private void process (final File file) {
 
-        //  Open new Neo4J database session and process each file in its own transaction that can be rolled
-        //  back, if necessary.
-        Session session = sessionFactory.openSession();
-        Transaction transaction = session.beginTransaction();
-
         try (BufferedReader br = new BufferedReader (Files.newBufferedReader(file.toPath()))) {
             //  Files are processed line-by-line so collect the lines into a list that can be passed to
-            //  worker method.  This decouples the input source from tghe actually loading of the data.
-            load (br.lines().collect(Collectors.toList()), session);
-
-            //  Dependencies successfully loaded, so commit the data.
-            transaction.commit();
+            //  parser.  This decouples the input source from tghe actually loading of the data.  Lockfiles are
+            //  already flat so take the fast path, without following a dependency tree.
+            List<String> lines = br.lines().collect(Collectors.toList());
+            List<DependencyRecord> records = LockfileParser.isLockfile(file) ?
+                                             lockfileParser.parse(LockfileParser.projectName(file), lines) :
+                                             parser.parse(lines);
+
+            if (snapshotWriter != null) {
+                synchronized (snapshotWriter) {
+                    snapshotWriter.addReport(file.getName(), records);
+                }
+            }
 
-            System.out.println (file.getName() + " completed.");
+            dispatch (file.getName(), records);
         } catch (Exception e) {
-            //  Something bad happen, log and rollback whatever might have been loaded before the exception.
             System.out.println("Exception: " + e);
-            transaction.rollback();
         }
-
-        //  Gotta close the session factory to shutdown Neo4J threads, allowing clean program exit.
-        sessionFactory.close();
     }
 
     /**
-     * Processes the output from the Gradle dependecy tree and loads into the Neo4J database
-     * @param lines individual lines from the Gradle dependency tree
-     * @param session Neo4J database session
-     * @throws IOException thrown if something bad happens
-     */
-    private void load (final List<String> lines,
-                       final Session session)throws IOException {
-
-        //  A stack is used to track the dependee artifacts, as artifacts are created they're added
-        //  the stack and popped off as needed when any/all dependendents are processed
-        Stack<Artifact> stack = new Stack<>();
-
-        AtomicReference<ConfigurationType> config = new AtomicReference<>(ConfigurationType.UNKNOWN);
-        AtomicReference<String> projectName = new AtomicReference<>();
-
-        //  Stream through the lines one-by-one
-        lines.stream().forEach (line -> {
-            ResolutionType rt;
-
-            //  Try and extract "Root project" or "Project" from the output
-            if (line.startsWith (GRADLE_ROOT_PROJECT)) {
-                String temp = line.substring(GRADLE_ROOT_PROJECT.length(), line.length() -1);
-                projectName.set(temp);
-                stack.push(promoteOrCreateProject(temp, session));
-                return;
-            } else if (line.startsWith (GRADLE_PROJECT)) {
-                String temp = line.substring(GRADLE_PROJECT.length(), line.length() - 1);
-                projectName.set(temp);
-                stack.push(promoteOrCreateProject(temp, session));
-                return;
-            } else if (line.contains (GRADLE_CLASSPATH)) {
-                config.set(ConfigurationType.findByGradleString(line.substring(0, line.indexOf(GRADLE_CLASSPATH) + 9)));
-                return;
-            } else if (config.get() == ConfigurationType.UNKNOWN) {
-                return;
-            } else {
-                //  Any line not starting with "+" or "|" can be skipped.
-                if (!line.startsWith(GRADLE_ARTIFACT_CURRENT_LEVEL) && !line.startsWith(GRADLE_ARTIFACT_NEXT_LEVEL)) {
-                    return;
-                } else {
-                    //  Determine the type of resolution.
-                    rt = ResolutionType.determine(line);
-                    if (rt == ResolutionType.SKIPPED) {
-                        return;
+     * Load each report of a previously-written snapshot, skipping the parsing of the original reports.
+     * @param file the snapshot file
+     */
+    private void replay (final File file) {
+
+        long start = System.currentTimeMillis();
+        try (SnapshotReader reader = new SnapshotReader(file.toPath())) {
+            List<Runnable> tasks = new ArrayList<>();
+            for (int i = 0; i < reader.getReportCount(); i++) {
+                int report = i;
+                tasks.add(() -> {
+                    try {
+                        dispatch (reader.getReportName(report), reader.readReport(report));
+                    } catch (IOException e) {
+                        System.out.println("Exception: " + e);
                     }
-                }
+                });
             }
+            run(tasks);
 
-            //  When the resolution type is not default/normal, strip from the end of the line.  Need to add "-1" for the
-            //  space that always preceeds the resolution specification.
-            if (rt != ResolutionType.NORMAL) {
-                line = line.substring(0, line.length() - rt.getIdentifier().length() - 1);
-            }
+            System.out.println (file.getName() + " replayed " + reader.getReportCount() + " reports in " +
+                                (System.currentTimeMillis() - start) + "ms.");
+        } catch (IOException e) {
+            System.out.println("Exception: " + e);
+        }
+    }
 
-            //  Figure out which level we're at in the dependency tree: if first character is '+' or '\' we have an
-            //  artifact to process
-            int level = 1;
-            while (!line.startsWith(GRADLE_ARTIFACT_CURRENT_LEVEL) && !line.startsWith(GRADLE_ARTIFACT_LAST_LEVEL)) {
-                line = line.substring(GRADLE_LEVEL_WIDTH);
-                level++;
-            }
+    /**
+     * Route the records of a single report to their target and load them, on the target's threads when there's
+     * more than one target.
+     * @param name the name of the report
+     * @param records the records parsed from the report
+     */
+    private void dispatch (final String name,
+                           final List<DependencyRecord> records) {
+
+        //  Routed by project, or by the name of the report if it doesn't have one.
+        String project = records.stream().filter(DependencyRecord::isProject).map(DependencyRecord::getArtifactId).findFirst().orElse(name);
+        Shard shard = shards.size() == 1 ? shards.values().iterator().next() : shards.get(router.route(project));
+        if (shard == null) {
+            System.out.println (name + " skipped, no target for " + project + ".");
+            return;
+        }
+
+        if (shard.executor == null) {
+            load (shard, name, records);
+            return;
+        }
 
-            //  When the stack size is greater than the level just identified, we've moved up one or more
-            //  levels (i.e., the previous artifact was that leaf node in the dependency tree) so pop nodes.
-            //
-            //  When the stack size is the same as the level, we had two successive artifacts at the same
-            //  level, indicating the previous artifact did not have any child dependencies.  Therefore,
-            //  that one needs to be popped off the stack as well.
-            while (level > 0 && stack.size() != level) {
-                stack.pop();
+        shard.queued.acquireUninterruptibly();
+        shard.executor.execute(() -> {
+            try {
+                load (shard, name, records);
+            } finally {
+                shard.queued.release();
             }
+        });
+    }
 
-            //  Split the line into the artifact's constituent parts
-            String[] parts = line.substring(GRADLE_LEVEL_WIDTH).split(ARTIFACT_SEPARATOR);
-            String groupId = parts[0].trim();
-            String artifactId = parts[1].trim();
-
-            //  Either specified or resolved is always present, but possible to have either or both (3 combinations).
-            String resolvedVersion = null;
-            String specifiedVersion = null;
-            if (parts.length == 2) {
-                //  No explicit version, which should mean the artifact has the resolved version.
-                String[] temp = artifactId.split(GRADLE_RESOLVED_INDICATION);
-                if (temp.length == 2) {
-                    artifactId = temp[0].trim();
-                    specifiedVersion = temp[1].trim();
+    /**
+     * Wait for every target to finish loading the reports routed to it.
+     */
+    private void drain() {
+        for (Shard one : shards.values()) {
+            if (one.executor != null) {
+                one.executor.shutdown();
+                try {
+                    one.executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    one.executor.shutdownNow();
+                    Thread.currentThread().interrupt();
                 }
-            } else {
-                String[] temp = parts[2].split(GRADLE_RESOLVED_INDICATION);
-                specifiedVersion = temp[0].trim();
-                if (temp.length == 2) {
-                    resolvedVersion = temp[1].trim();
+            }
+        }
+    }
+
+    /**
+     * Loads the records of a single report in its own transaction that can be rolled back, if necessary.
+     * @param shard the target the report is loaded into
+     * @param name the name of the report
+     * @param records the records parsed from the report
+     */
+    private void load (final Shard shard,
+                       final String name,
+                       final List<DependencyRecord> records) {
+
+        long start = System.currentTimeMillis();
+        GraphSink sink = shard.sink;
+        if (shard.aggregator != null) {
+            try {
+                for (DependencyRecord one : records) {
+                    shard.aggregator.add(one);
                 }
+
+                System.out.println (name + " aggregated" + shard.label() + ", " + records.size() + " records in " + (System.currentTimeMillis() - start) + "ms.");
+            } catch (IOException e) {
+                System.out.println("Exception: " + e);
             }
+            return;
+        }
 
-            //  Get the dependent artifact, which may already exist if used in previous dependency
-            Artifact dependee = findOrCreateArtifact(groupId, artifactId, session);
+        //  Lockfiles are flat, so are written in a few UNWIND statements rather than record by record.
+        if (shard.concurrentWriter != null && (concurrent || LockfileParser.isLockfile(new File(name)))) {
+            try {
+                shard.concurrentWriter.write(records, this::determineArtifactType);
+                committed(shard);
 
-            //  The stack's top node is the dependee artifact, which requires dependency resolution just
-            //  found/created from the current line read.
-            Artifact dependant = stack.peek();
+                loadedRecords.addAndGet(records.size());
+                System.out.println (name + " completed" + shard.label() + ", " + records.size() + " records in " + (System.currentTimeMillis() - start) + "ms.");
+            } catch (Exception e) {
+                System.out.println(name + " failed, may be partially loaded.  Exception: " + e);
+            }
+            return;
+        }
 
-            //  Find an existing or create a new relationship between the dependee and dependent artifact
-            DependsOn dpon = findOrCreateDependsOn(dependee, dependant, resolvedVersion, specifiedVersion, session);
-            dpon.addConfiguration(config.get());
-            dpon.addResolutionType(rt);
-            dpon.addSource(projectName.get());
-            session.save(dpon);
-
-            //  Push the new artifact on the stack.
-            stack.push(dependee);
-        });
-    }
+        sink.begin();
 
+        try {
+            load (sink, records);
 
-    /**
-     * Based on the groupId, subtype the artifact (which becomes an artifact's label)
-     * @param groupId the groupId from the artifact's fully-qualified name
-     * @return the subtype of the artifact
-     */
-    private String determineArtifactType (final String groupId) {
+            //  Dependencies successfully loaded, so commit the data.
+            sink.commit();
+            committed(shard);
 
-        //  Iterate through our mappings and see if we find anything interesting.
-        for (String[] one : artifactMapping) {
-            if (groupId.startsWith(one[0])) return one[1];
+            loadedRecords.addAndGet(records.size());
+            System.out.println (name + " completed" + shard.label() + ", " + records.size() + " records in " + (System.currentTimeMillis() - start) + "ms.");
+        } catch (Exception e) {
+            //  Something bad happen, log and rollback whatever might have been loaded before the exception.
+            System.out.println("Exception: " + e);
+            sink.rollback();
         }
-
-        //  If nothing else, the artifact is by default external.
-        return ARTIFACT_TYPE_EXTERNAL;
     }
 
-
     /**
-     * Attempt to find an artifact based on artifact Id or group/artifact Id.
-     * @param groupId the group id for the artifact
-     * @param artifactId the artifact id for the artifact
-     * @param session the current Neo4J database session
-     * @return the artifacts found, if any
+     * Load the dependencies combined across all reports, targets in parallel.
      */
-    private Collection<Artifact> findArtifact (final String groupId,
-                                               final String artifactId,
-                                               final Session session) {
+    private void loadAggregated() {
+        eachShard(this::loadAggregated);
+    }
 
-        //  Create filter based on artifact's groupId and artifactId (which is also stored as
-        //  name).  The groupId is optional, providing a way to potentially find a project
-        //  that has already been loaded as an internal artifact.
-        Filters composite = new Filters();
-        Filter filter = new Filter("artifactId", ComparisonOperator.EQUALS, artifactId);
-        composite.add(filter);
+    /**
+     * Load the dependencies combined across all reports routed to a target, in batches each in their own
+     * transaction.
+     * @param shard the target
+     */
+    private void loadAggregated (final Shard shard) {
 
-        if (groupId != null) {
-            filter = new Filter("groupId", ComparisonOperator.EQUALS, groupId);
-            filter.setBooleanOperator(BooleanOperator.AND);
-            composite.add(filter);
+        ExternalAggregator aggregator = shard.aggregator;
+        GraphSink sink = shard.sink;
+        if (aggregator == null) {
+            return;
         }
 
+        long start = System.currentTimeMillis();
+        long loaded = 0;
+        try {
+            System.out.println ("Merging " + aggregator.getRunCount() + " spilled runs" + shard.label() + ".");
+
+            //  Artifacts are only cached for the current transaction.
+            Map<String, Artifact> artifacts = new HashMap<>();
+            Iterator<AggregatedDependency> it = aggregator.merged();
+            sink.begin();
+            while (it.hasNext()) {
+                AggregatedDependency one = it.next();
+
+                Artifact dependee = findOrCreateArtifact(sink, one.getGroupId(), one.getArtifactId(), artifacts);
+                if (!one.isProject()) {
+                    Artifact dependant = findOrCreateArtifact(sink, one.getDependantGroupId(), one.getDependantArtifactId(), artifacts);
+
+                    DependsOn dpon = sink.findOrCreateDependsOn(dependee, dependant, one.getResolvedVersion(), one.getSpecifiedVersion());
+                    one.getConfigurations().forEach(dpon::addConfiguration);
+                    one.getResolutionTypes().forEach(dpon::addResolutionType);
+                    one.getSources().forEach(dpon::addSource);
+                    sink.save(dpon);
+                }
 
-        //  Execute query and return collection to caller.
-        return session.loadAll(Artifact.class, composite);
-    }
+                if (++loaded % AGGREGATE_BATCH == 0) {
+                    sink.commit();
+                    committed(shard);
+                    artifacts.clear();
+                    sink.begin();
+                }
+            }
+            sink.commit();
+            committed(shard);
 
+            loadedRecords.addAndGet(loaded);
+            System.out.println ("Aggregated dependencies completed" + shard.label() + ", " + loaded + " in " + (System.currentTimeMillis() - start) + "ms.");
+        } catch (Exception e) {
+            //  Only the current batch is rolled back, earlier batches are already committed.
+            System.out.println("Exception loading aggregated dependencies after " + loaded + ": " + e);
+            sink.rollback();
+        } finally {
+            try {
+                aggregator.close();
+            } catch (IOException e) {
+                System.out.println("Exception removing spilled runs: " + e);
+            }
+        }
+    }
 
     /**
-     * Find an existing artifact in the Neo4j database or create a new one.  An individual artifact may
-     * be referenced multiple times in a dependency tree, so only needs to be created once but then
-     * reused for multiple dependencies
-     * @param groupId the group id for the artifact
+     * Find or create an artifact, caching it for the current transaction
+     * @param sink the sink the artifact is loaded into
+     * @param groupId the group id for the artifact, the project placeholder for projects
      * @param artifactId the artifact id for the artifact
-     * @param session the current Neo4J database session
+     * @param artifacts artifacts already found or created in the current transaction
      * @return the artifact either found or created
      */
-    private Artifact findOrCreateArtifact (final String groupId,
+    private Artifact findOrCreateArtifact (final GraphSink sink,
+                                           final String groupId,
                                            final String artifactId,
-                                           final Session session) {
+                                           final Map<String, Artifact> artifacts) {
+        String artifactType = DependencyRecord.PROJECT_GROUP_ID.equals(groupId) ? GraphSink.ARTIFACT_TYPE_PROJECT : determineArtifactType(groupId);
+        return artifacts.computeIfAbsent(key(groupId, artifactId), k -> sink.findOrCreateArtifact(groupId, artifactId, artifactType));
+    }
 
-        Artifact toReturn;
+    /**
+     * Merge the projects loaded with their internal artifacts in one pass once all reports are loaded.
+     */
+    private void reconcileProjects() {
+        eachShard(shard -> {
+            try {
+                System.out.println (shard.sink.reconcileProjects() + " projects reconciled with internal artifacts" + shard.label() + ".");
+                committed(shard);
+            } catch (Exception e) {
+                System.out.println("Exception reconciling projects" + shard.label() + ": " + e);
+            }
+        });
+    }
 
-        //  Attempt to find the artifact by group and artifact id.
-        Collection<Artifact> artifacts = findArtifact(groupId, artifactId, session);
-        if (!artifacts.isEmpty()) {
-            //  Something found, just use the first in the stream (there should only be 1)
-            toReturn = artifacts.stream().findFirst().get();
-        } else {
-            //  Unfortunately, the gradle dependencies does not have the group id for a project, just project name
-            //  which is used as artifact name.  Depending on order, the project may be created first, in which case
-            //  we can use that as the artifact and just update the group id.
-            artifacts = findArtifact(ARTIFACT_TYPE_PROJECT, artifactId, session);
-            if (!artifacts.isEmpty()) {
-                //  Found a project to use, add the group id that we now have.
-                toReturn = artifacts.stream().findFirst().get();
-                toReturn.setGroupId(groupId);
-                session.save(toReturn);
-            } else {
-                //  Need to create a new artifact node, immediately save to Neo4J
-                toReturn = new Artifact(groupId, artifactId, determineArtifactType(groupId));
-                session.save(toReturn);
+    /**
+     * Finish the snapshot, if any, and close the sink to shutdown Neo4J threads, allowing clean program exit.
+     */
+    private void close() {
+        if (snapshotWriter != null) {
+            try {
+                snapshotWriter.close();
+            } catch (IOException e) {
+                System.out.println("Exception writing snapshot: " + e);
             }
         }
 
+        shards.values().forEach(shard -> shard.sink.close());
 
-        return toReturn;
-    }
+        long elapsed = System.currentTimeMillis() - started;
+        if (started > 0 && elapsed > 0) {
+            System.out.println ("Loaded " + loadedRecords.get() + " records in " + elapsed + "ms, " +
+                                (loadedRecords.get() * 1000 / elapsed) + " records/s.");
+        }
+
+        long lookups = stringPool.getHits() + stringPool.getMisses();
+        if (lookups > 0) {
+            System.out.println ("String pool: " + stringPool.size() + " distinct values, " +
+                                (stringPool.getHits() * 100 / lookups) + "% of " + lookups + " lookups shared.");
+        }
 
+        for (Shard one : shards.values()) {
+            ConcurrentNeo4jWriter concurrentWriter = one.concurrentWriter;
+            if (concurrentWriter != null && concurrentWriter.getTransactions() > 0) {
+                System.out.println ((concurrent ? writers + " writers" : "Batch writer") + one.label() + ": " + concurrentWriter.getTransactions() + " transactions, " +
+                                    concurrentWriter.getRetries() + " retries (" + concurrentWriter.getDeadlocks() + " deadlocks), " +
+                                    concurrentWriter.getFailures() + " failures.");
+            }
+        }
+    }
 
     /**
-     * Find an existing dependency based on the dependee/dependant artifact and the version of the dependency.
-     * @param dependee the artifact that provides the dependency
-     * @param dependent the artifact that requires a dependency
-     * @param resolvedVersion the version resolved, when different from the specified
-     * @param specifiedVersion the specified version of the dependent
-     * @param session Neo4J database session
-     * @return 0 or more dependency relationships, really should only get 1 if something/anything found
-     */
-    private Iterable<DependsOn> findDependsOn (final Artifact dependee,
-                                               final Artifact dependent,
-                                               final String resolvedVersion,
-                                               final String specifiedVersion,
-                                               final Session session) {
-        Map<String, Object> params = new HashMap<>();
-        params.put("dgroup", dependent.getGroupId());
-        params.put("dname", dependent.getName());
-        params.put("dogroup", dependee.getGroupId());
-        params.put("doname", dependee.getName());
-        params.put ("specifiedVersion", specifiedVersion);
-        params.put ("resolvedVersion", resolvedVersion);
+     * Run the tasks, concurrently when loading with multiple writers.
+     * @param tasks each task loads a single report
+     */
+    private void run (final List<Runnable> tasks) {
 
-        /**
-         * There are three possibilities:
-         * 1) the build.gradle version specified is ultimately what is the dependency
-         * 2) the build.gradle version specified is resolved to a different version by gradle
-         * 3) no version specified but is resolved to a specific version by gradle.
-         */
-        String cypher;
-        if (resolvedVersion == null) {
-            cypher = "MATCH (d:Artifact {groupId: $dgroup, name: $dname})-[dpo:DEPENDS_ON {specifiedVersion: $specifiedVersion}]->(do:Artifact {groupId: $dogroup, name: $doname}) RETURN dpo";
-        } else if (specifiedVersion == null) {
-            cypher = "MATCH (d:Artifact {groupId: $dgroup, name: $dname})-[dpo:DEPENDS_ON {resolvedVersion: $resolvedVersion}]->(do:Artifact {groupId: $dogroup, name: $doname}) RETURN dpo";
-        } else {
-            cypher = "MATCH (d:Artifact {groupId: $dgroup, name: $dname})-[dpo:DEPENDS_ON {specifiedVersion: $specifiedVersion, resolvedVersion: $resolvedVersion}]->(do:Artifact {groupId: $dogroup, name: $doname}) RETURN dpo";
+        if (!concurrent) {
+            tasks.forEach(Runnable::run);
+            return;
         }
 
-        return session.query (DependsOn.class, cypher, params);
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        tasks.forEach(executor::submit);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
     }
 
-
     /**
-     * Either find an existing dependency or create a new one.
-     * @param dependee the artifact that provides the dependency
-     * @param dependent the artifact that requires a dependency
-     * @param resolvedVersion the version resolved, when different from the specified
-     * @param specifiedVersion the specified version of the dependent
-     * @param session Neo4J database session
-     * @return 0 or more dependency relationships, really should only get 1 if something/anything found
-     */
-    private DependsOn findOrCreateDependsOn (final Artifact dependee,
-                                             final Artifact dependent,
-                                             final String resolvedVersion,
-                                             final String specifiedVersion,
-                                             final Session session) {
-        DependsOn toReturn;
-        Iterator<DependsOn> it = findDependsOn (dependee, dependent, resolvedVersion, specifiedVersion, session).iterator();
-        if (it.hasNext()) {
-            toReturn = it.next();
-        } else {
-            toReturn = new DependsOn (dependee, dependent, resolvedVersion, specifiedVersion);
-            session.save (toReturn);
-        }
+     * Run an action for every target, targets in parallel when there's more than one.
+     * @param action the action
+     */
+    private void eachShard (final Consumer<Shard> action) {
 
+        if (shards.size() == 1) {
+            shards.values().forEach(action);
+            return;
+        }
 
-        return toReturn;
+        ExecutorService executor = Executors.newFixedThreadPool(shards.size());
+        shards.values().forEach(one -> executor.submit(() -> action.accept(one)));
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
     }
 
     /**
-     * Either find an existing internal node that represents a project or create a brand-new project node.
-     * @param projectName project name extracted from the dependency file
-     * @param session Neo4J database session
-     * @return new or replaced project node.
+     * Loads the records parsed from the Gradle dependency tree into the Neo4J database
+     * @param sink the sink the records are loaded into
+     * @param records project and dependency records from the Gradle dependency tree
      */
-    private Artifact promoteOrCreateProject(final String projectName,
-                                            final Session session) {
+    void load (final GraphSink sink,
+               final List<DependencyRecord> records) {
+
+        //  Artifacts already found or created for this report, so the dependant of each record (always a
+        //  project or a previous dependee) doesn't have to be looked up again.
+        Map<String, Artifact> artifacts = new HashMap<>();
+
+        for (DependencyRecord one : records) {
+            //  Get the dependent artifact, which may already exist if used in previous dependency.  Projects are
+            //  matched to their internal artifact after everything is loaded, see reconcileProjects().
+            Artifact dependee = findOrCreateArtifact(sink, one.getGroupId(), one.getArtifactId(), artifacts);
+            if (one.isProject()) {
+                continue;
+            }
 
-        Artifact toReturn = null;
+            //  The dependant artifact requires dependency resolution just found/created from the current record.
+            Artifact dependant = artifacts.get(key(one.getDependantGroupId(), one.getDependantArtifactId()));
 
-        //  For a multi-project dependency load, it's possible that the project has already been created as a basic
-        //  artifact.  Unfortunately, we can only map a project name to an artifactId, so do a search and see if
-        //  an internal artifact node is found which can be promoted to a project.
-        for (Artifact one: findArtifact(null, projectName, session)) {
+            //  Find an existing or create a new relationship between the dependee and dependent artifact
+            DependsOn dpon = sink.findOrCreateDependsOn(dependee, dependant, one.getResolvedVersion(), one.getSpecifiedVersion());
+            one.getConfigurations().forEach(dpon::addConfiguration);
+            dpon.addResolutionType(one.getResolutionType());
+            dpon.addSource(one.getSource());
+            sink.save(dpon);
+        }
+    }
 
-            //  If an internal node is found, assume that's we want and change labels to make it project.
-            if (one.getLabels().remove(ARTIFACT_TYPE_INTERNAL)) {
-                one.getLabels().add(ARTIFACT_TYPE_PROJECT);
-                one.setArtifactType(ARTIFACT_TYPE_PROJECT);
-                toReturn = one;
-                break;
+    /**
+     * @return key identifying an artifact by group and artifact id
+     */
+    private static String key (final String groupId,
+                               final String artifactId) {
+        return groupId + ARTIFACT_SEPARATOR + artifactId;
+    }
+
+
+    /**
+     * @return the comma-separated values of a system property, empty if not set
+     */
+    private static List<String> splitProperty (final String name) {
+        List<String> toReturn = new ArrayList<>();
+        for (String one : System.getProperty(name, "").split(",")) {
+            if (!one.trim().isEmpty()) {
+                toReturn.add(one.trim());
             }
         }
 
-        //  If nothing or nothing relevant found, create a new project node.
-        if (toReturn == null) {
-            //  Nothing found, so create a new project node.
-            toReturn = new Artifact(ARTIFACT_TYPE_PROJECT, projectName, ARTIFACT_TYPE_PROJECT);
-        }
 
-        //  Always have something to save, either a new or changed artifact node.
-        session.save (toReturn);
+        return toReturn;
+    }
 
 
-        return toReturn;
+    /**
+     * Based on the groupId, subtype the artifact (which becomes an artifact's label)
+     * @param groupId the groupId from the artifact's fully-qualified name
+     * @return the subtype of the artifact
+     */
+    private String determineArtifactType (final String groupId) {
+
+        //  Iterate through our mappings and see if we find anything interesting.
+        for (String[] one : artifactMapping) {
+            if (groupId.startsWith(one[0])) return one[1];
+        }
+
+        //  If nothing else, the artifact is by default external.
+        return ARTIFACT_TYPE_EXTERNAL;
     }
 
+
     /**
      * Attempt to load the artifact type mappings from an external file
      * @param fileName file in properties format "org.apache=APACHE" or whatever
@@ -515,4 +845,45 @@ public class DependencyLoader {
         //  Convert into raw array for (hopefully) faster processing than a Java collection
         artifactMapping = mappings.toArray(new String[mappings.size()][2]);
     }
+
+    /**
+     * A target the reports are loaded into, along with everything loading into it.
+     */
+    private class Shard {
+        final String name;
+
+        /**
+         * Destination for the artifacts and dependencies loaded, normally the Neo4j database
+         */
+        GraphSink sink;
+
+        /**
+         * When more than one writer is requested, reports are loaded concurrently through this writer instead of
+         * the sink.  Lockfiles are always loaded through it when loading into Neo4J.
+         */
+        ConcurrentNeo4jWriter concurrentWriter;
+
+        /**
+         * When set, dependencies from all reports are combined within a bounded amount of memory before loading
+         */
+        ExternalAggregator aggregator;
+
+        /**
+         * When there's more than one target, reports are loaded on the target's own threads, with the number of
+         * reports waiting bounded
+         */
+        ExecutorService executor;
+        Semaphore queued;
+
+        Shard(final String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return the target's name for messages, only when there's more than one target
+         */
+        String label() {
+            return shards.size() > 1 ? " [" + name + "]" : "";
+        }
+    }
 }
@@ -0,0 +1,223 @@
+/*
+ * @author Scott C Sosna
+ */
+package dev.scottsosna.neo4j.gradle.aggregate;
+
+import dev.scottsosna.neo4j.gradle.parse.DependencyRecord;
+import dev.scottsosna.neo4j.gradle.relationship.ConfigurationType;
+import dev.scottsosna.neo4j.gradle.relationship.ResolutionType;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A dependency combined across every report it was found in: the dependant, dependee and versions identify the
+ * dependency, while the configurations, resolution types and sources are the union of all reports.  A project
+ * without a dependant is kept as well, so that projects without any dependencies are still loaded.
+ */
+public class AggregatedDependency implements Comparable<AggregatedDependency> {
+
+    //  Nulls sort first, so projects come before any dependency.
+    private static final Comparator<String> NULLS_FIRST = Comparator.nullsFirst(Comparator.naturalOrder());
+    private static final Comparator<AggregatedDependency> ORDER =
+        Comparator.comparing(AggregatedDependency::getDependantGroupId, NULLS_FIRST)
+                  .thenComparing(AggregatedDependency::getDependantArtifactId, NULLS_FIRST)
+                  .thenComparing(AggregatedDependency::getGroupId, NULLS_FIRST)
+                  .thenComparing(AggregatedDependency::getArtifactId, NULLS_FIRST)
+                  .thenComparing(AggregatedDependency::getSpecifiedVersion, NULLS_FIRST)
+                  .thenComparing(AggregatedDependency::getResolvedVersion, NULLS_FIRST);
+
+    //  Rough per-instance overhead used to estimate memory use: the object, its sets and references.
+    private static final int OVERHEAD_BYTES = 256;
+    private static final int SET_ENTRY_BYTES = 48;
+
+    private final String dependantGroupId;
+    private final String dependantArtifactId;
+    private final String groupId;
+    private final String artifactId;
+    private final String specifiedVersion;
+    private final String resolvedVersion;
+    private final Set<ConfigurationType> configurations = EnumSet.noneOf(ConfigurationType.class);
+    private final Set<ResolutionType> resolutionTypes = EnumSet.noneOf(ResolutionType.class);
+    private final Set<String> sources = new TreeSet<>();
+
+    /**
+     * Constructor
+     */
+    private AggregatedDependency(final String dependantGroupId,
+                                 final String dependantArtifactId,
+                                 final String groupId,
+                                 final String artifactId,
+                                 final String specifiedVersion,
+                                 final String resolvedVersion) {
+        this.dependantGroupId = dependantGroupId;
+        this.dependantArtifactId = dependantArtifactId;
+        this.groupId = groupId;
+        this.artifactId = artifactId;
+        this.specifiedVersion = specifiedVersion;
+        this.resolvedVersion = resolvedVersion;
+    }
+
+    /**
+     * Create from a parsed record
+     * @param record project or dependency record
+     * @return the new aggregated dependency
+     */
+    public static AggregatedDependency of (final DependencyRecord record) {
+        AggregatedDependency toReturn = new AggregatedDependency(record.getDependantGroupId(), record.getDependantArtifactId(),
+                                                                 record.getGroupId(), record.getArtifactId(),
+                                                                 record.getSpecifiedVersion(), record.getResolvedVersion());
+        if (!record.isProject()) {
+            toReturn.configurations.addAll(record.getConfigurations());
+            toReturn.resolutionTypes.add(record.getResolutionType());
+            toReturn.sources.add(record.getSource());
+        }
+
+
+        return toReturn;
+    }
+
+    /**
+     * Union the configurations, resolution types and sources of the same dependency found elsewhere.
+     * @param other the same dependency
+     */
+    public void merge (final AggregatedDependency other) {
+        configurations.addAll(other.configurations);
+        resolutionTypes.addAll(other.resolutionTypes);
+        sources.addAll(other.sources);
+    }
+
+    /**
+     * @return true if this is a project rather than a dependency
+     */
+    public boolean isProject() {
+        return dependantArtifactId == null;
+    }
+
+    /**
+     * @return rough estimate of the heap used by this instance
+     */
+    public long estimateBytes() {
+        long toReturn = OVERHEAD_BYTES + (long) SET_ENTRY_BYTES * (configurations.size() + resolutionTypes.size() + sources.size());
+        for (String one : new String[] {dependantGroupId, dependantArtifactId, groupId, artifactId, specifiedVersion, resolvedVersion}) {
+            toReturn += one != null ? 2L * one.length() : 0;
+        }
+        for (String one : sources) {
+            toReturn += 2L * one.length();
+        }
+
+
+        return toReturn;
+    }
+
+    /**
+     * Write to a spilled run
+     * @param out the run being written
+     * @throws IOException thrown if the run can't be written
+     */
+    public void write (final DataOutput out) throws IOException {
+        writeString(out, dependantGroupId);
+        writeString(out, dependantArtifactId);
+        writeString(out, groupId);
+        writeString(out, artifactId);
+        writeString(out, specifiedVersion);
+        writeString(out, resolvedVersion);
+
+        out.writeByte(configurations.size());
+        for (ConfigurationType one : configurations) {
+            out.writeByte(one.ordinal());
+        }
+        out.writeByte(resolutionTypes.size());
+        for (ResolutionType one : resolutionTypes) {
+            out.writeByte(one.ordinal());
+        }
+        out.writeInt(sources.size());
+        for (String one : sources) {
+            out.writeUTF(one);
+        }
+    }
+
+    /**
+     * Read from a spilled run
+     * @param in the run being read
+     * @return the aggregated dependency
+     * @throws IOException thrown if the run can't be read
+     */
+    public static AggregatedDependency read (final DataInput in) throws IOException {
+        AggregatedDependency toReturn = new AggregatedDependency(readString(in), readString(in), readString(in),
+                                                                 readString(in), readString(in), readString(in));
+
+        ConfigurationType[] configurations = ConfigurationType.values();
+        for (int i = in.readByte(); i > 0; i--) {
+            toReturn.configurations.add(configurations[in.readByte()]);
+        }
+        ResolutionType[] resolutionTypes = ResolutionType.values();
+        for (int i = in.readByte(); i > 0; i--) {
+            toReturn.resolutionTypes.add(resolutionTypes[in.readByte()]);
+        }
+        for (int i = in.readInt(); i > 0; i--) {
+            toReturn.sources.add(in.readUTF());
+        }
+
+
+        return toReturn;
+    }
+
+    @Override
+    public int compareTo (final AggregatedDependency other) {
+        return ORDER.compare(this, other);
+    }
+
+    public String getDependantGroupId() {
+        return dependantGroupId;
+    }
+
+    public String getDependantArtifactId() {
+        return dependantArtifactId;
+    }
+
+    public String getGroupId() {
+        return groupId;
+    }
+
+    public String getArtifactId() {
+        return artifactId;
+    }
+
+    public String getSpecifiedVersion() {
+        return specifiedVersion;
+    }
+
+    public String getResolvedVersion() {
+        return resolvedVersion;
+    }
+
+    public Set<ConfigurationType> getConfigurations() {
+        return configurations;
+    }
+
+    public Set<ResolutionType> getResolutionTypes() {
+        return resolutionTypes;
+    }
+
+    public Set<String> getSources() {
+        return sources;
+    }
+
+    private static void writeString (final DataOutput out,
+                                     final String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString (final DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
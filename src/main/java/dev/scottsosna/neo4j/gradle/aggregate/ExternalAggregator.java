@@ -0,0 +1,303 @@
+/*
+ * @author Scott C Sosna
+ */
+package dev.scottsosna.neo4j.gradle.aggregate;
+
+import dev.scottsosna.neo4j.gradle.parse.DependencyRecord;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Combines the same dependency found across many reports while using a bounded amount of memory.  Dependencies
+ * are combined in memory until the budget is reached, then written to disk as a sorted run.  Once everything
+ * is added, the runs are merged (k-way) into a single sorted stream, combining the same dependency from different
+ * runs along the way.  Only so many runs are merged at once, each with its own open file and read buffer, so when
+ * there are more the oldest are first merged into intermediate runs.
+ */
+public class ExternalAggregator implements Closeable {
+
+    //  Read/write buffer size for each run
+    private static final int RUN_BUFFER_BYTES = 64 * 1024;
+
+    //  Maximum number of runs merged at once, when not specified
+    private static final int DEFAULT_MAX_FAN_IN = 64;
+
+    /**
+     * Approximate heap allowed for combining dependencies before spilling to disk
+     */
+    private final long memoryBudget;
+
+    /**
+     * Directory where runs are written
+     */
+    private final Path directory;
+
+    /**
+     * Maximum number of runs merged at once, including whatever is still in memory
+     */
+    private final int maxFanIn;
+
+    /**
+     * Dependencies combined in memory, sorted so they can be written as a run
+     */
+    private TreeMap<AggregatedDependency, AggregatedDependency> buffer = new TreeMap<>();
+    private long bufferBytes;
+
+    private final List<Path> runs = new ArrayList<>();
+    private final List<DataInputStream> readers = new ArrayList<>();
+
+    /**
+     * Constructor
+     * @param memoryBudget approximate heap, in bytes, allowed for combining dependencies before spilling
+     * @param directory directory where runs are written
+     */
+    public ExternalAggregator(final long memoryBudget,
+                              final Path directory) {
+        this(memoryBudget, directory, DEFAULT_MAX_FAN_IN);
+    }
+
+    /**
+     * Constructor, for merging in more passes than would normally be needed
+     * @param memoryBudget approximate heap, in bytes, allowed for combining dependencies before spilling
+     * @param directory directory where runs are written
+     * @param maxFanIn maximum number of runs merged at once, at least two
+     */
+    ExternalAggregator(final long memoryBudget,
+                       final Path directory,
+                       final int maxFanIn) {
+        this.memoryBudget = memoryBudget;
+        this.directory = directory;
+        this.maxFanIn = Math.max(2, maxFanIn);
+    }
+
+    /**
+     * Add a parsed project or dependency, safe to call from multiple threads
+     * @param record the parsed record
+     * @throws IOException thrown if a run can't be written
+     */
+    public synchronized void add (final DependencyRecord record) throws IOException {
+
+        AggregatedDependency one = AggregatedDependency.of(record);
+        AggregatedDependency existing = buffer.get(one);
+        if (existing != null) {
+            long before = existing.estimateBytes();
+            existing.merge(one);
+            bufferBytes += existing.estimateBytes() - before;
+        } else {
+            buffer.put(one, one);
+            bufferBytes += one.estimateBytes();
+        }
+
+        if (bufferBytes >= memoryBudget) {
+            spill();
+        }
+    }
+
+    /**
+     * @return the number of runs spilled to disk
+     */
+    public synchronized int getRunCount() {
+        return runs.size();
+    }
+
+    /**
+     * Merge everything added into a single sorted stream, each dependency appearing exactly once.  Nothing may be
+     * added once merging starts.
+     * @return the combined dependencies in (dependant, dependee, versions) order
+     * @throws IOException thrown if the runs can't be opened
+     */
+    public synchronized Iterator<AggregatedDependency> merged() throws IOException {
+
+        //  Merge the oldest runs into a new run until the rest, along with what's still in memory, can be merged
+        //  at once.  Each pass leaves maxFanIn - 1 fewer runs.
+        while (runs.size() >= maxFanIn) {
+            List<Path> pass = new ArrayList<>(runs.subList(0, maxFanIn));
+            List<RunReader> inputs = new ArrayList<>(pass.size());
+            for (Path one : pass) {
+                inputs.add(open(one));
+            }
+
+            Path run = Files.createTempFile(directory, "dependencies", ".run");
+            runs.add(run);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), RUN_BUFFER_BYTES))) {
+                Iterator<AggregatedDependency> merged = merge(inputs);
+                while (merged.hasNext()) {
+                    merged.next().write(out);
+                }
+            }
+
+            for (DataInputStream one : readers) {
+                one.close();
+            }
+            readers.clear();
+            for (Path one : pass) {
+                Files.deleteIfExists(one);
+            }
+            runs.subList(0, maxFanIn).clear();
+        }
+
+        List<RunReader> inputs = new ArrayList<>(runs.size() + 1);
+        for (Path one : runs) {
+            inputs.add(open(one));
+        }
+
+        //  Whatever is still in memory is the final run.
+        Iterator<AggregatedDependency> remaining = buffer.keySet().iterator();
+        inputs.add(() -> remaining.hasNext() ? remaining.next() : null);
+        buffer = new TreeMap<>();
+        bufferBytes = 0;
+
+
+        return merge(inputs);
+    }
+
+    /**
+     * Open a run for reading, closed along with the aggregator
+     * @param run the run
+     * @return reader of the run's dependencies, in order
+     */
+    private RunReader open (final Path run) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), RUN_BUFFER_BYTES));
+        readers.add(in);
+        return () -> {
+            try {
+                return AggregatedDependency.read(in);
+            } catch (EOFException e) {
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Merge sorted runs into a single sorted stream, combining the same dependency from different runs.
+     * @param inputs readers of the runs
+     * @return the combined dependencies, in order
+     */
+    private static Iterator<AggregatedDependency> merge (final List<RunReader> inputs) throws IOException {
+
+        PriorityQueue<Source> sources = new PriorityQueue<>();
+        for (RunReader one : inputs) {
+            new Source(one).offerTo(sources);
+        }
+
+        return new Iterator<AggregatedDependency>() {
+            @Override
+            public boolean hasNext() {
+                return !sources.isEmpty();
+            }
+
+            @Override
+            public AggregatedDependency next() {
+                if (sources.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+
+                //  Take the smallest and combine it with the same dependency at the head of any other run.
+                Source smallest = sources.poll();
+                AggregatedDependency toReturn = smallest.current;
+                smallest.advance(sources);
+                while (!sources.isEmpty() && sources.peek().current.compareTo(toReturn) == 0) {
+                    Source same = sources.poll();
+                    toReturn.merge(same.current);
+                    same.advance(sources);
+                }
+
+
+                return toReturn;
+            }
+        };
+    }
+
+    /**
+     * Delete the runs written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        for (DataInputStream one : readers) {
+            one.close();
+        }
+        for (Path one : runs) {
+            Files.deleteIfExists(one);
+        }
+        readers.clear();
+        runs.clear();
+    }
+
+    /**
+     * Write the buffered dependencies, already sorted, to a new run and empty the buffer.
+     */
+    private void spill() throws IOException {
+
+        Path run = Files.createTempFile(directory, "dependencies", ".run");
+        runs.add(run);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), RUN_BUFFER_BYTES))) {
+            for (AggregatedDependency one : buffer.keySet()) {
+                one.write(out);
+            }
+        }
+
+        buffer = new TreeMap<>();
+        bufferBytes = 0;
+    }
+
+    /**
+     * Reads the next dependency of a run, null at the end of the run.
+     */
+    private interface RunReader {
+        AggregatedDependency read() throws IOException;
+    }
+
+    /**
+     * A run being merged, ordered by its current dependency.
+     */
+    private static class Source implements Comparable<Source> {
+
+        private final RunReader reader;
+        private AggregatedDependency current;
+
+        Source(final RunReader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * Read the first dependency and, if any, add to the sources being merged.
+         */
+        void offerTo (final PriorityQueue<Source> sources) throws IOException {
+            current = reader.read();
+            if (current != null) {
+                sources.add(this);
+            }
+        }
+
+        /**
+         * Move to the next dependency, returning to the sources being merged unless the run is exhausted.
+         */
+        void advance (final PriorityQueue<Source> sources) {
+            try {
+                offerTo(sources);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public int compareTo (final Source other) {
+            return current.compareTo(other.current);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * @author Scott C Sosna
+ */
+package dev.scottsosna.neo4j.gradle.export;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * Graphviz DOT: each artifact is labeled groupId:artifactId, each dependency by its versions and configurations.
+ */
+public class DotFormat implements GraphFormat {
+
+    private final Writer out;
+
+    public DotFormat(final Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    public void begin() throws IOException {
+        out.write("digraph dependencies {\n");
+    }
+
+    @Override
+    public void node (final Map<String, Object> row) throws IOException {
+        out.write("  n" + row.get(ID) + " [label=" + quote(GraphFormat.string(row, GROUP_ID) + ":" + GraphFormat.string(row, ARTIFACT_ID)) +
+                  ", type=" + quote(GraphFormat.string(row, ARTIFACT_TYPE)) + "];\n");
+    }
+
+    @Override
+    public void relationship (final Map<String, Object> row) throws IOException {
+        String specified = GraphFormat.string(row, SPECIFIED_VERSION);
+        String resolved = GraphFormat.string(row, RESOLVED_VERSION);
+        String versions = specified == null ? (resolved == null ? null : "-> " + resolved) :
+                          resolved == null ? specified : specified + " -> " + resolved;
+
+        //  Dependencies without any version aren't labeled.
+        out.write("  n" + row.get(DEPENDANT) + " -> n" + row.get(DEPENDEE) + " [" +
+                  (versions == null ? "" : "label=" + quote(versions) + ", ") +
+                  "configurations=" + quote(String.join(",", GraphFormat.strings(row, CONFIGURATIONS))) +
+                  ", resolutionTypes=" + quote(String.join(",", GraphFormat.strings(row, RESOLUTION_TYPES))) +
+                  ", sources=" + quote(String.join(",", GraphFormat.strings(row, SOURCES))) + "];\n");
+    }
+
+    @Override
+    public void end() throws IOException {
+        out.write("}\n");
+    }
+
+    /**
+     * @return the value as a quoted DOT string
+     */
+    private static String quote (final String value) {
+        return value == null ? "\"\"" : "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+}
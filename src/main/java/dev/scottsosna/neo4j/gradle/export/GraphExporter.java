@@ -0,0 +1,301 @@
+/*
+ * @author Scott C Sosna
+ */
+package dev.scottsosna.neo4j.gradle.export;
+
+import dev.scottsosna.neo4j.gradle.shard.ShardTarget;
+import dev.scottsosna.neo4j.gradle.sink.ArtifactIndexes;
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports the loaded graph, every Artifact node and DEPENDS_ON relationship, to a file for use by other tools.
+ * Rather than loading the graph through OGM, nodes and then relationships are read a page at a time and written
+ * out as they're read, so memory use is the same however large the graph.  Pages are in (groupId, artifactId, id)
+ * order, nodes by their own and relationships by their dependant's, each page continuing from the last artifact
+ * of the previous one.  Artifacts missing either coordinate follow, in id order.
+ * <p>
+ * The graph is only consistent if nothing is loaded while exporting.
+ */
+public class GraphExporter {
+
+    //  A page either finishes the artifacts sharing the (groupId, artifactId) of the last artifact of the previous
+    //  page, finishes its group, both index seeks on (groupId, artifactId), or continues with the groups after
+    //  it, an index seek on groupId.  None is expressible as a single seek, and id order (or SKIP) would scan
+    //  every node before the page on every page.  The node id breaks ties between artifacts with the same
+    //  coordinates.
+    private static final String NODE_COLUMNS =
+        "RETURN id(n) AS id, n.groupId AS groupId, n.artifactId AS artifactId, n.artifactType AS artifactType, labels(n) AS labels ";
+    private static final String NODES_IN_ARTIFACT =
+        "MATCH (n:Artifact) WHERE n.groupId = $groupId AND n.artifactId = $artifactId AND id(n) > $id " +
+        "WITH n ORDER BY id(n) LIMIT $limit " + NODE_COLUMNS + "ORDER BY id(n)";
+    private static final String NODES_IN_GROUP =
+        "MATCH (n:Artifact) WHERE n.groupId = $groupId AND n.artifactId > $artifactId " +
+        "WITH n ORDER BY n.artifactId, id(n) LIMIT $limit " + NODE_COLUMNS + "ORDER BY n.artifactId, id(n)";
+    private static final String NODES_AFTER_GROUP =
+        "MATCH (n:Artifact) WHERE n.groupId > $groupId AND n.artifactId IS NOT NULL " +
+        "WITH n ORDER BY n.groupId, n.artifactId, id(n) LIMIT $limit " + NODE_COLUMNS + "ORDER BY n.groupId, n.artifactId, id(n)";
+
+    //  Artifacts missing either coordinate can't be found by seeking on them, so are exported afterwards in id
+    //  order.  There shouldn't be any, so this is normally a single scan finding nothing.
+    private static final String NODES_WITHOUT_COORDINATES =
+        "MATCH (n:Artifact) WHERE (n.groupId IS NULL OR n.artifactId IS NULL) AND id(n) > $id " +
+        "WITH n ORDER BY id(n) LIMIT $limit " + NODE_COLUMNS + "ORDER BY id(n)";
+
+    //  Relationships are paged by dependant the same way, only those with dependencies, so a page is every
+    //  relationship of up to $limit dependants.
+    private static final String RELATIONSHIP_COLUMNS =
+        "MATCH (d)-[r:DEPENDS_ON]->(e:Artifact) " +
+        "RETURN id(r) AS id, id(d) AS dependant, id(e) AS dependee, r.specifiedVersion AS specifiedVersion, " +
+        "       r.resolvedVersion AS resolvedVersion, r.configurations AS configurations, " +
+        "       r.resolutionType AS resolutionType, r.sources AS sources, " +
+        "       d.groupId AS dependantGroupId, d.artifactId AS dependantArtifactId ";
+    private static final String RELATIONSHIPS_IN_ARTIFACT =
+        "MATCH (d:Artifact) WHERE d.groupId = $groupId AND d.artifactId = $artifactId AND id(d) > $id AND (d)-[:DEPENDS_ON]->() " +
+        "WITH d ORDER BY id(d) LIMIT $limit " + RELATIONSHIP_COLUMNS + "ORDER BY id(d)";
+    private static final String RELATIONSHIPS_IN_GROUP =
+        "MATCH (d:Artifact) WHERE d.groupId = $groupId AND d.artifactId > $artifactId AND (d)-[:DEPENDS_ON]->() " +
+        "WITH d ORDER BY d.artifactId, id(d) LIMIT $limit " + RELATIONSHIP_COLUMNS + "ORDER BY d.artifactId, id(d)";
+    private static final String RELATIONSHIPS_AFTER_GROUP =
+        "MATCH (d:Artifact) WHERE d.groupId > $groupId AND d.artifactId IS NOT NULL AND (d)-[:DEPENDS_ON]->() " +
+        "WITH d ORDER BY d.groupId, d.artifactId, id(d) LIMIT $limit " + RELATIONSHIP_COLUMNS + "ORDER BY d.groupId, d.artifactId, id(d)";
+    private static final String RELATIONSHIPS_WITHOUT_COORDINATES =
+        "MATCH (d:Artifact) WHERE (d.groupId IS NULL OR d.artifactId IS NULL) AND id(d) > $id AND (d)-[:DEPENDS_ON]->() " +
+        "WITH d ORDER BY id(d) LIMIT $limit " + RELATIONSHIP_COLUMNS + "ORDER BY id(d)";
+
+    //  Columns of the artifact each page continues from
+    private static final String DEPENDANT_GROUP_ID = "dependantGroupId";
+    private static final String DEPENDANT_ARTIFACT_ID = "dependantArtifactId";
+
+    //  System properties for the export: rows read per query, the target exported when the targets are
+    //  configured (see DependencyLoader) and how often progress is reported.
+    private static final String PAGE_PROPERTY = "export.page";
+    private static final String TARGET_PROPERTY = "export.target";
+    private static final String TARGETS_PROPERTY = "loader.targets";
+    private static final int PROGRESS_PAGES = 50;
+
+    private static final String GZIP_EXTENSION = ".gz";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final SessionFactory sessionFactory;
+
+    /**
+     * Maximum number of nodes, or dependants of the relationships, read by a single query
+     */
+    private final int pageSize;
+
+    private long nodes;
+    private long relationships;
+    private long started;
+
+    /**
+     * Constructor
+     * @param sessionFactory session factory for connecting to Neo4j database
+     * @param pageSize maximum number of nodes, or dependants of the relationships, read by a single query
+     */
+    public GraphExporter(final SessionFactory sessionFactory,
+                         final int pageSize) {
+        this.sessionFactory = sessionFactory;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Main entry point for program
+     * @param args file the graph is exported to and optionally the format: dot, graphml or jsonl, otherwise
+     *             determined from the file's extension.  The file is compressed when its name ends in .gz.
+     */
+    public static void main (final String[] args) {
+
+        if (args.length > 0) {
+            File file = new File(args[0]);
+            String name = file.getName().endsWith(GZIP_EXTENSION) ? file.getName().substring(0, file.getName().length() - GZIP_EXTENSION.length()) : file.getName();
+            String formatName = args.length >= 2 ? args[1] : name.substring(name.lastIndexOf('.') + 1);
+
+            //  Same targets as loading, exporting the default target unless another is named.
+            SessionFactory sessionFactory = null;
+            try {
+                ShardTarget target = ShardTarget.defaultTarget();
+                String targetsFile = System.getProperty(TARGETS_PROPERTY);
+                if (targetsFile != null) {
+                    target = ShardTarget.load(new File(targetsFile)).get(System.getProperty(TARGET_PROPERTY, ShardTarget.DEFAULT_NAME));
+                }
+                if (target == null) {
+                    System.out.println ("Target " + System.getProperty(TARGET_PROPERTY, ShardTarget.DEFAULT_NAME) + " not defined.");
+                    return;
+                }
+
+                sessionFactory = target.createSessionFactory("dev.scottsosna.neo4j.gradle.node", "dev.scottsosna.neo4j.gradle.relationship");
+                new GraphExporter(sessionFactory, Integer.getInteger(PAGE_PROPERTY, 10000)).export(file, formatName);
+            } catch (IOException e) {
+                System.out.println("Exception: " + e);
+            } finally {
+                //  Gotta close the session factory to shutdown Neo4J threads, allowing clean program exit.
+                if (sessionFactory != null) {
+                    sessionFactory.close();
+                }
+            }
+        } else {
+            System.out.println ("Export file name required.");
+        }
+    }
+
+    /**
+     * Export the graph to a file
+     * @param file the file written, compressed when its name ends in .gz
+     * @param formatName dot, graphml or jsonl
+     * @throws IOException thrown if the file can't be written
+     */
+    public void export (final File file,
+                        final String formatName) throws IOException {
+
+        OutputStream stream = Files.newOutputStream(file.toPath());
+        if (file.getName().endsWith(GZIP_EXTENSION)) {
+            stream = new GZIPOutputStream(stream, BUFFER_SIZE);
+        }
+
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            GraphFormat format = GraphFormat.create(formatName, out);
+            if (format == null) {
+                throw new IOException("Unknown export format " + formatName);
+            }
+            export(format);
+        }
+
+        System.out.println (file.getName() + " written, " + Files.size(file.toPath()) + " bytes.");
+    }
+
+    /**
+     * Export the graph, nodes followed by relationships
+     * @param format writes the nodes and relationships
+     * @throws IOException thrown if the graph can't be written
+     */
+    public void export (final GraphFormat format) throws IOException {
+
+        started = System.currentTimeMillis();
+        nodes = 0;
+        relationships = 0;
+
+        //  A graph loaded before the indexes existed still needs them to page.
+        ArtifactIndexes.create(sessionFactory);
+
+        RowHandler node = row -> {
+            format.node(row);
+            nodes++;
+        };
+        RowHandler relationship = row -> {
+            format.relationship(row);
+            relationships++;
+        };
+
+        format.begin();
+        page(new String[] {NODES_IN_ARTIFACT, NODES_IN_GROUP, NODES_AFTER_GROUP},
+             GraphFormat.ID, GraphFormat.GROUP_ID, GraphFormat.ARTIFACT_ID, node);
+        page(new String[] {NODES_WITHOUT_COORDINATES},
+             GraphFormat.ID, GraphFormat.GROUP_ID, GraphFormat.ARTIFACT_ID, node);
+        page(new String[] {RELATIONSHIPS_IN_ARTIFACT, RELATIONSHIPS_IN_GROUP, RELATIONSHIPS_AFTER_GROUP},
+             GraphFormat.DEPENDANT, DEPENDANT_GROUP_ID, DEPENDANT_ARTIFACT_ID, relationship);
+        page(new String[] {RELATIONSHIPS_WITHOUT_COORDINATES},
+             GraphFormat.DEPENDANT, DEPENDANT_GROUP_ID, DEPENDANT_ARTIFACT_ID, relationship);
+        format.end();
+
+        progress("Exported");
+    }
+
+    /**
+     * @return the number of nodes exported
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return the number of relationships exported
+     */
+    public long getRelationships() {
+        return relationships;
+    }
+
+    /**
+     * Read every row a page at a time, continuing from the artifact of the last row of the previous page.  Each
+     * query in turn returns the rows of the artifacts after it, until one returns less than a full page, when the
+     * next query continues from the same artifact; a full page starts again with the first query.
+     * @param queries queries returning rows for at most $limit artifacts after $groupId, $artifactId and $id,
+     *                rows of the same artifact together and the artifacts in order
+     * @param idColumn column of each row's artifact node id
+     * @param groupColumn column of each row's artifact group id
+     * @param artifactColumn column of each row's artifact id
+     * @param handler called for each row
+     */
+    private void page (final String[] queries,
+                       final String idColumn,
+                       final String groupColumn,
+                       final String artifactColumn,
+                       final RowHandler handler) throws IOException {
+
+        Session session = sessionFactory.openSession();
+        Map<String, Object> params = new HashMap<>();
+        params.put("limit", pageSize);
+        params.put("groupId", "");
+        params.put("artifactId", "");
+        params.put("id", -1L);
+
+        int query = 0;
+        int pages = 0;
+        while (true) {
+            //  Several rows may share an artifact, a page is full once it has $limit artifacts.
+            int artifacts = 0;
+            Map<String, Object> last = null;
+            for (Map<String, Object> one : session.query(queries[query], params)) {
+                handler.handle(one);
+                if (last == null || !one.get(idColumn).equals(last.get(idColumn))) {
+                    artifacts++;
+                }
+                last = one;
+            }
+
+            if (++pages % PROGRESS_PAGES == 0) {
+                progress("Exporting");
+            }
+
+            //  Nothing read is kept by the session, so it doesn't grow from page to page.
+            session.clear();
+
+            if (artifacts == pageSize) {
+                params.put("groupId", last.get(groupColumn));
+                params.put("artifactId", last.get(artifactColumn));
+                params.put("id", last.get(idColumn));
+                query = 0;
+            } else if (++query == queries.length) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Report the number of nodes and relationships exported and the throughput
+     */
+    private void progress (final String verb) {
+        long elapsed = Math.max(1, System.currentTimeMillis() - started);
+        System.out.println (verb + " " + nodes + " nodes, " + relationships + " relationships in " + elapsed + "ms, " +
+                            ((nodes + relationships) * 1000 / elapsed) + " rows/s.");
+    }
+
+    /**
+     * Handles each row read, allowing the format to throw IOException
+     */
+    private interface RowHandler {
+        void handle (Map<String, Object> row) throws IOException;
+    }
+}
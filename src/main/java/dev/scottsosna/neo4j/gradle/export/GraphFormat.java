@@ -0,0 +1,114 @@
+/*
+ * @author Scott C Sosna
+ */
+package dev.scottsosna.neo4j.gradle.export;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes exported nodes and relationships in a particular file format, one at a time as they're read, so nothing
+ * is kept in memory.  Nodes are always written before relationships.
+ */
+public interface GraphFormat {
+
+    //  Columns of the rows exported for each node
+    String ID = "id";
+    String GROUP_ID = "groupId";
+    String ARTIFACT_ID = "artifactId";
+    String ARTIFACT_TYPE = "artifactType";
+    String LABELS = "labels";
+
+    //  Columns of the rows exported for each relationship, in addition to its id
+    String DEPENDANT = "dependant";
+    String DEPENDEE = "dependee";
+    String SPECIFIED_VERSION = "specifiedVersion";
+    String RESOLVED_VERSION = "resolvedVersion";
+    String CONFIGURATIONS = "configurations";
+    String RESOLUTION_TYPES = "resolutionType";
+    String SOURCES = "sources";
+
+    /**
+     * Write anything preceding the nodes
+     */
+    void begin() throws IOException;
+
+    /**
+     * Write a single Artifact node
+     * @param row the node's columns
+     */
+    void node (Map<String, Object> row) throws IOException;
+
+    /**
+     * Write a single DEPENDS_ON relationship, from dependant to dependee
+     * @param row the relationship's columns
+     */
+    void relationship (Map<String, Object> row) throws IOException;
+
+    /**
+     * Write anything following the relationships
+     */
+    void end() throws IOException;
+
+    /**
+     * Create the format for a name or file extension
+     * @param name dot (or gv), graphml or jsonl (or json)
+     * @param out where the graph is written
+     * @return the format, null if not recognized
+     */
+    static GraphFormat create (final String name,
+                               final Writer out) {
+        switch (name.toLowerCase()) {
+            case "dot":
+            case "gv":
+                return new DotFormat(out);
+            case "graphml":
+                return new GraphMLFormat(out);
+            case "jsonl":
+            case "json":
+                return new JsonLinesFormat(out);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return a column's value as a string, null if not set
+     */
+    static String string (final Map<String, Object> row,
+                          final String column) {
+        Object value = row.get(column);
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * Lists are returned by the driver either as arrays or as collections, depending on how they were written.
+     * @return a column's values, empty if not set
+     */
+    static List<String> strings (final Map<String, Object> row,
+                                 final String column) {
+        Object value = row.get(column);
+        if (value == null) {
+            return Collections.emptyList();
+        }
+
+        List<String> toReturn = new ArrayList<>();
+        if (value.getClass().isArray()) {
+            for (int i = 0; i < Array.getLength(value); i++) {
+                toReturn.add(String.valueOf(Array.get(value, i)));
+            }
+        } else if (value instanceof Iterable) {
+            ((Iterable<?>) value).forEach(one -> toReturn.add(String.valueOf(one)));
+        } else {
+            toReturn.add(value.toString());
+        }
+
+
+        return toReturn;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * @author Scott C Sosna
+ */
+package dev.scottsosna.neo4j.gradle.export;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * GraphML, with the artifact and dependency properties declared as keys.  Multi-valued properties are written
+ * comma-separated.
+ */
+public class GraphMLFormat implements GraphFormat {
+
+    private static final String[] NODE_KEYS = {GROUP_ID, ARTIFACT_ID, ARTIFACT_TYPE, LABELS};
+    private static final String[] EDGE_KEYS = {SPECIFIED_VERSION, RESOLVED_VERSION, CONFIGURATIONS, RESOLUTION_TYPES, SOURCES};
+
+    private final Writer out;
+
+    public GraphMLFormat(final Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    public void begin() throws IOException {
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        out.write("<graphml xmlns=\"http://graphml.graphdrawing.org/xmlns\">\n");
+        for (String one : NODE_KEYS) {
+            out.write("  <key id=\"" + one + "\" for=\"node\" attr.name=\"" + one + "\" attr.type=\"string\"/>\n");
+        }
+        for (String one : EDGE_KEYS) {
+            out.write("  <key id=\"" + one + "\" for=\"edge\" attr.name=\"" + one + "\" attr.type=\"string\"/>\n");
+        }
+        out.write("  <graph id=\"dependencies\" edgedefault=\"directed\">\n");
+    }
+
+    @Override
+    public void node (final Map<String, Object> row) throws IOException {
+        out.write("    <node id=\"n" + row.get(ID) + "\">");
+        for (String one : NODE_KEYS) {
+            data(one, String.join(",", GraphFormat.strings(row, one)));
+        }
+        out.write("</node>\n");
+    }
+
+    @Override
+    public void relationship (final Map<String, Object> row) throws IOException {
+        out.write("    <edge id=\"e" + row.get(ID) + "\" source=\"n" + row.get(DEPENDANT) + "\" target=\"n" + row.get(DEPENDEE) + "\">");
+        for (String one : EDGE_KEYS) {
+            data(one, String.join(",", GraphFormat.strings(row, one)));
+        }
+        out.write("</edge>\n");
+    }
+
+    @Override
+    public void end() throws IOException {
+        out.write("  </graph>\n");
+        out.write("</graphml>\n");
+    }
+
+    /**
+     * Write a property, skipped when empty
+     */
+    private void data (final String key,
+                       final String value) throws IOException {
+        if (!value.isEmpty()) {
+            out.write("<data key=\"" + key + "\">" + escape(value) + "</data>");
+        }
+    }
+
+    /**
+     * @return the value with XML's special characters escaped
+     */
+    private static String escape (final String value) {
+        StringBuilder toReturn = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '<': toReturn.append("&lt;"); break;
+                case '>': toReturn.append("&gt;"); break;
+                case '&': toReturn.append("&amp;"); break;
+                case '"': toReturn.append("&quot;"); break;
+                default: toReturn.append(c);
+            }
+        }
+        return toReturn.toString();
+    }
+}
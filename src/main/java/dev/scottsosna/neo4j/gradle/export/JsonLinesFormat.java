@@ -0,0 +1,82 @@
+/*
+ * @author Scott C Sosna
+ */
+package dev.scottsosna.neo4j.gradle.export;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON lines: one object per node and per relationship, distinguished by <i>type</i>.
+ */
+public class JsonLinesFormat implements GraphFormat {
+
+    private final Writer out;
+
+    public JsonLinesFormat(final Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    public void begin() {
+        //  Nothing precedes the first line.
+    }
+
+    @Override
+    public void node (final Map<String, Object> row) throws IOException {
+        out.write("{\"type\":\"node\",\"id\":" + row.get(ID) +
+                  ",\"groupId\":" + quote(GraphFormat.string(row, GROUP_ID)) +
+                  ",\"artifactId\":" + quote(GraphFormat.string(row, ARTIFACT_ID)) +
+                  ",\"artifactType\":" + quote(GraphFormat.string(row, ARTIFACT_TYPE)) +
+                  ",\"labels\":" + array(GraphFormat.strings(row, LABELS)) + "}\n");
+    }
+
+    @Override
+    public void relationship (final Map<String, Object> row) throws IOException {
+        out.write("{\"type\":\"relationship\",\"id\":" + row.get(ID) +
+                  ",\"dependant\":" + row.get(DEPENDANT) +
+                  ",\"dependee\":" + row.get(DEPENDEE) +
+                  ",\"specifiedVersion\":" + quote(GraphFormat.string(row, SPECIFIED_VERSION)) +
+                  ",\"resolvedVersion\":" + quote(GraphFormat.string(row, RESOLVED_VERSION)) +
+                  ",\"configurations\":" + array(GraphFormat.strings(row, CONFIGURATIONS)) +
+                  ",\"resolutionTypes\":" + array(GraphFormat.strings(row, RESOLUTION_TYPES)) +
+                  ",\"sources\":" + array(GraphFormat.strings(row, SOURCES)) + "}\n");
+    }
+
+    @Override
+    public void end() {
+        //  Nothing follows the last line.
+    }
+
+    private static String array (final List<String> values) {
+        StringBuilder toReturn = new StringBuilder("[");
+        for (String one : values) {
+            toReturn.append(toReturn.length() > 1 ? "," : "").append(quote(one));
+        }
+        return toReturn.append(']').toString();
+    }
+
+    /**
+     * @return the value as a JSON string, or null
+     */
+    private static String quote (final String value) {
+        if (value == null) {
+            return "null";
+        }
+
+        StringBuilder toReturn = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                toReturn.append('\\').append(c);
+            } else if (c < ' ') {
+                toReturn.append(String.format("\\u%04x", (int) c));
+            } else {
+                toReturn.append(c);
+            }
+        }
+        return toReturn.append('"').toString();
+    }
+}
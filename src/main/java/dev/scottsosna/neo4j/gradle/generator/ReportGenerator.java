@@ -0,0 +1,372 @@
+/*
+ * @author Scott C Sosna
+ */
+package dev.scottsosna.neo4j.gradle.generator;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic <i>gradle dependencies</i> reports, one file per project, for benchmarking and soak testing
+ * the loader.  The reports use the same layout as Gradle: tree indentation, conflict resolution ("1.0 -> 1.2"),
+ * omitted subtrees (*), dependency constraints (c) and declared but unresolved dependencies (n).
+ * <p>
+ * Every artifact has a fixed set of dependencies on more popular artifacts, so the same artifact always has the
+ * same subtree across projects, and popular artifacts tend to be leaves.  Popularity follows a Zipf distribution.
+ * The same seed always generates the same reports.
+ * <p>
+ * Internal libraries are projects published under {@value #INTERNAL_GROUP} with the project's name as artifact
+ * id, which later projects depend on.  Each is a multi-project build whose root depends on a <i>:name-core</i>
+ * subproject, reported in its own section, as Gradle does.
+ * <p>
+ * Configured with system properties:
+ * <ul>
+ *     <li>generator.projects - number of reports/projects (default 100)</li>
+ *     <li>generator.artifacts - number of distinct artifacts (default 5000)</li>
+ *     <li>generator.dependencies - direct dependencies per project (default 30)</li>
+ *     <li>generator.fanout - maximum dependencies per artifact (default 5)</li>
+ *     <li>generator.depth - maximum depth of a dependency tree (default 6)</li>
+ *     <li>generator.skew - Zipf exponent for artifact popularity, 0 for uniform (default 1.0)</li>
+ *     <li>generator.conflicts - fraction of dependencies requesting an older version (default 0.1)</li>
+ *     <li>generator.constraints - fraction of direct dependencies with a constraint (default 0.05)</li>
+ *     <li>generator.internal - fraction of projects that are internal libraries (default 0)</li>
+ *     <li>generator.seed - random seed (default 1)</li>
+ * </ul>
+ */
+public class ReportGenerator {
+
+    //  Group ids are spread across some familiar prefixes so that artifact mappings have something to match.
+    private static final String[] GROUP_PREFIXES = {
+        "org.springframework", "org.springframework.cloud", "com.fasterxml.jackson", "org.apache", "io.netty",
+        "io.pivotal.cloud", "com.google", "org.slf4j", "io.micrometer", "com.acme"
+    };
+    private static final int GROUP_SPREAD = 25;
+    private static final int MAX_VERSIONS = 5;
+
+    //  Internal libraries and their subproject
+    private static final String INTERNAL_GROUP = "com.acme.internal";
+    private static final String SUBPROJECT_SUFFIX = "-core";
+
+    //  Configurations in the order Gradle reports them; only the classpaths are resolved.
+    private static final String COMPILE_CLASSPATH = "compileClasspath - Compile classpath for source set 'main'.";
+    private static final String IMPLEMENTATION = "implementation - Implementation only dependencies for source set 'main'. (n)";
+    private static final String RUNTIME_CLASSPATH = "runtimeClasspath - Runtime classpath of source set 'main'.";
+    private static final String TEST_COMPILE_CLASSPATH = "testCompileClasspath - Compile classpath for source set 'test'.";
+    private static final String TEST_RUNTIME_CLASSPATH = "testRuntimeClasspath - Runtime classpath of source set 'test'.";
+    private static final String SEPARATOR = "------------------------------------------------------------";
+
+    private final int projects = Integer.getInteger("generator.projects", 100);
+    private final int artifacts = Integer.getInteger("generator.artifacts", 5000);
+    private final int dependencies = Integer.getInteger("generator.dependencies", 30);
+    private final int fanout = Integer.getInteger("generator.fanout", 5);
+    private final int depth = Integer.getInteger("generator.depth", 6);
+    private final double skew = Double.parseDouble(System.getProperty("generator.skew", "1.0"));
+    private final double conflicts = Double.parseDouble(System.getProperty("generator.conflicts", "0.1"));
+    private final double constraints = Double.parseDouble(System.getProperty("generator.constraints", "0.05"));
+    private final double internal = Double.parseDouble(System.getProperty("generator.internal", "0"));
+    private final Random random = new Random(Long.getLong("generator.seed", 1L));
+
+    /**
+     * Cumulative popularity of artifacts 0..i, most popular first
+     */
+    private final double[] popularity = new double[artifacts];
+
+    /**
+     * Available versions of each artifact, the last being the newest which is always the one resolved
+     */
+    private final String[][] versions = new String[artifacts][];
+
+    /**
+     * The dependencies of each artifact and the index of the version each one requests
+     */
+    private final int[][] artifactDependencies = new int[artifacts][];
+    private final int[][] requestedVersions = new int[artifacts][];
+
+    /**
+     * Main entry point for program
+     * @param args directory the reports are written to
+     */
+    public static void main (final String[] args) {
+
+        if (args.length > 0) {
+            File directory = new File(args[0]);
+            if (directory.isDirectory() || directory.mkdirs()) {
+                try {
+                    long start = System.currentTimeMillis();
+                    ReportGenerator generator = new ReportGenerator();
+                    long lines = generator.generate(directory);
+                    System.out.println ("Generated " + generator.projects + " reports, " + lines + " lines in " +
+                                        (System.currentTimeMillis() - start) + "ms.");
+                } catch (IOException e) {
+                    System.out.println("Exception: " + e);
+                }
+            } else {
+                System.out.println ("Unable to create " + directory + ".");
+            }
+        } else {
+            System.out.println ("Output directory name required.");
+        }
+    }
+
+    /**
+     * Constructor, builds the artifacts and their dependencies
+     */
+    public ReportGenerator() {
+
+        double total = 0;
+        for (int i = 0; i < artifacts; i++) {
+            total += 1.0 / Math.pow(i + 1, skew);
+            popularity[i] = total;
+
+            versions[i] = new String[1 + random.nextInt(MAX_VERSIONS)];
+            int major = random.nextInt(6);
+            int minor = random.nextInt(10);
+            for (int v = 0; v < versions[i].length; v++) {
+                versions[i][v] = major + "." + (minor + v) + "." + random.nextInt(20);
+            }
+
+            //  Dependencies are always on more popular artifacts, keeping the graph acyclic.
+            int count = i == 0 ? 0 : random.nextInt(Math.min(fanout, i) + 1);
+            artifactDependencies[i] = distinct(count, i);
+            requestedVersions[i] = new int[count];
+            for (int d = 0; d < count; d++) {
+                requestedVersions[i][d] = requestVersion(artifactDependencies[i][d]);
+            }
+        }
+    }
+
+    /**
+     * Write a report for each project
+     * @param directory where the reports are written
+     * @return the number of lines written
+     * @throws IOException thrown if a report can't be written
+     */
+    public long generate (final File directory) throws IOException {
+
+        long lines = 0;
+        String format = "service-%0" + String.valueOf(projects).length() + "d";
+        int libraries = (int) Math.round(projects * internal);
+        for (int p = 0; p < projects; p++) {
+            String name = String.format(format, p);
+
+            //  A library depends on its subproject, and any project on libraries generated before it.
+            List<String> internalDependencies = new ArrayList<>();
+            if (p < libraries) {
+                internalDependencies.add("project :" + name + SUBPROJECT_SUFFIX);
+            }
+            for (int library : libraries(Math.min(p, libraries))) {
+                internalDependencies.add(INTERNAL_GROUP + ":" + String.format(format, library) + ":1." + library + ".0");
+            }
+
+            //  Main dependencies, runtime-only dependencies and test dependencies.
+            int[] compile = distinct(dependencies, artifacts);
+            int[] runtime = distinct(Math.max(1, dependencies / 5), artifacts);
+            int[] test = distinct(Math.max(1, dependencies / 5), artifacts);
+
+            try (BufferedWriter out = Files.newBufferedWriter(new File(directory, name + ".txt").toPath())) {
+                Report report = new Report(out);
+                report.internalDependencies = internalDependencies;
+                report.line("");
+                report.line(SEPARATOR);
+                report.line("Root project '" + name + "'");
+                report.line(SEPARATOR);
+                report.line("");
+
+                report.configuration(COMPILE_CLASSPATH, compile);
+                report.declared(IMPLEMENTATION, compile);
+                report.configuration(RUNTIME_CLASSPATH, compile, runtime);
+                report.configuration(TEST_COMPILE_CLASSPATH, compile, test);
+                report.configuration(TEST_RUNTIME_CLASSPATH, compile, runtime, test);
+
+                if (p < libraries) {
+                    report.internalDependencies = Collections.emptyList();
+                    report.line(SEPARATOR);
+                    report.line("Project ':" + name + SUBPROJECT_SUFFIX + "'");
+                    report.line(SEPARATOR);
+                    report.line("");
+
+                    report.configuration(COMPILE_CLASSPATH, compile);
+                    report.configuration(RUNTIME_CLASSPATH, compile, runtime);
+                }
+
+                lines += report.lines;
+            }
+        }
+
+
+        return lines;
+    }
+
+    /**
+     * Choose distinct artifacts by popularity
+     * @param count number of artifacts
+     * @param limit artifacts are chosen from 0 (most popular) up to but excluding the limit
+     * @return the artifacts chosen, most popular first
+     */
+    private int[] distinct (final int count,
+                            final int limit) {
+        BitSet chosen = new BitSet(limit);
+        int target = Math.min(count, limit);
+        while (chosen.cardinality() < target) {
+            chosen.set(popular(limit));
+        }
+        return chosen.stream().toArray();
+    }
+
+    /**
+     * Choose the internal libraries a project depends on
+     * @param limit libraries are chosen from 0 up to but excluding the limit, so that there's no cycle
+     * @return the libraries chosen, in order
+     */
+    private int[] libraries (final int limit) {
+        BitSet chosen = new BitSet(limit);
+        int target = Math.min(limit, Math.max(1, dependencies / 10));
+        while (chosen.cardinality() < target) {
+            chosen.set(random.nextInt(limit));
+        }
+        return chosen.stream().toArray();
+    }
+
+    /**
+     * Choose an artifact following the popularity skew
+     * @param limit artifacts are chosen from 0 (most popular) up to but excluding the limit
+     * @return the artifact
+     */
+    private int popular (final int limit) {
+        double target = random.nextDouble() * popularity[limit - 1];
+        int index = Arrays.binarySearch(popularity, 0, limit, target);
+        return Math.min(limit - 1, index >= 0 ? index : -index - 1);
+    }
+
+    /**
+     * @return the version of the artifact requested, usually the newest unless there's a conflict
+     */
+    private int requestVersion (final int artifact) {
+        int newest = versions[artifact].length - 1;
+        return newest > 0 && random.nextDouble() < conflicts ? random.nextInt(newest) : newest;
+    }
+
+    /**
+     * @return the artifact formatted as Gradle does, including conflict resolution
+     */
+    private String coordinates (final int artifact,
+                                final int requested) {
+        int group = artifact % GROUP_PREFIXES.length;
+        int spread = artifact / GROUP_PREFIXES.length % GROUP_SPREAD;
+        String newest = versions[artifact][versions[artifact].length - 1];
+        String version = versions[artifact][requested];
+
+        return GROUP_PREFIXES[group] + (spread == 0 ? "" : ".module" + spread) + ":artifact-" + artifact + ":" +
+               (version.equals(newest) ? version : version + " -> " + newest);
+    }
+
+    /**
+     * Writes a single report
+     */
+    private class Report {
+
+        private final Writer out;
+        private long lines;
+
+        /**
+         * Coordinates of the internal libraries and subprojects the project depends on, written first in every
+         * configuration without any dependencies of their own
+         */
+        private List<String> internalDependencies = Collections.emptyList();
+
+        /**
+         * Artifacts whose dependencies have been written in the current configuration; later occurrences are
+         * omitted (*), as Gradle does.
+         */
+        private BitSet expanded;
+
+        Report(final Writer out) {
+            this.out = out;
+        }
+
+        /**
+         * Write a resolved configuration: the dependency tree of each of the direct dependencies.
+         */
+        void configuration (final String header,
+                            final int[]... direct) throws IOException {
+
+            expanded = new BitSet(artifacts);
+            line(header);
+
+            int[] all = Arrays.stream(direct).flatMapToInt(Arrays::stream).distinct().toArray();
+            internal(all.length == 0, "");
+            for (int i = 0; i < all.length; i++) {
+                boolean last = i == all.length - 1;
+                if (random.nextDouble() < constraints) {
+                    int constrained = popular(artifacts);
+                    line("+--- " + coordinates(constrained, versions[constrained].length - 1) + " (c)");
+                }
+                dependency("", all[i], requestVersion(all[i]), last, 1);
+            }
+
+            line("");
+        }
+
+        /**
+         * Write a configuration that is declared but not resolved, every dependency marked (n).
+         */
+        void declared (final String header,
+                       final int[] direct) throws IOException {
+
+            line(header);
+            internal(direct.length == 0, " (n)");
+            for (int i = 0; i < direct.length; i++) {
+                line((i == direct.length - 1 ? "\\--- " : "+--- ") + coordinates(direct[i], versions[direct[i]].length - 1) + " (n)");
+            }
+            line("");
+        }
+
+        /**
+         * Write the internal dependencies at the top level of a configuration.
+         */
+        void internal (final boolean last,
+                       final String suffix) throws IOException {
+            for (int i = 0; i < internalDependencies.size(); i++) {
+                line((last && i == internalDependencies.size() - 1 ? "\\--- " : "+--- ") + internalDependencies.get(i) + suffix);
+            }
+        }
+
+        /**
+         * Write a dependency and, recursively, its dependencies.
+         */
+        void dependency (final String prefix,
+                         final int artifact,
+                         final int requested,
+                         final boolean last,
+                         final int level) throws IOException {
+
+            int[] children = level < depth ? artifactDependencies[artifact] : new int[0];
+            boolean omitted = children.length > 0 && expanded.get(artifact);
+            line(prefix + (last ? "\\--- " : "+--- ") + coordinates(artifact, requested) + (omitted ? " (*)" : ""));
+            if (omitted) {
+                return;
+            }
+
+            expanded.set(artifact);
+            String childPrefix = prefix + (last ? "     " : "|    ");
+            for (int i = 0; i < children.length; i++) {
+                dependency(childPrefix, children[i], requestedVersions[artifact][i], i == children.length - 1, level + 1);
+            }
+        }
+
+        void line (final String line) throws IOException {
+            out.write(line);
+            out.write('\n');
+            lines++;
+        }
+    }
+}
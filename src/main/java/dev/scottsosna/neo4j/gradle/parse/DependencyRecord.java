@@ -0,0 +1,201 @@
+/*
+ * @author Scott C Sosna
+ */
+package dev.scottsosna.neo4j.gradle.parse;
+
+import dev.scottsosna.neo4j.gradle.relationship.ConfigurationType;
+import dev.scottsosna.neo4j.gradle.relationship.ResolutionType;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A single parsed entry from a Gradle dependency report, independent of any Neo4J session.  A record is either
+ * a project header or a dependency between the artifact on the previous level of the tree (the dependant) and
+ * the artifact named on the current line (the dependee).  A report lists a dependency once per configuration,
+ * whereas a lockfile lists all of a dependency's configurations on one line, becoming a single record.
+ */
+public class DependencyRecord {
+
+    /**
+     * Gradle only provides the project name, so projects are identified by this placeholder group id until
+     * they're matched to a real artifact.
+     */
+    public static final String PROJECT_GROUP_ID = "PROJECT";
+
+    //  Nearly every record has a single configuration, so those records share the same set.
+    private static final Map<ConfigurationType, Set<ConfigurationType>> SINGLE_CONFIGURATIONS = new EnumMap<>(ConfigurationType.class);
+    static {
+        for (ConfigurationType one : ConfigurationType.values()) {
+            SINGLE_CONFIGURATIONS.put(one, Collections.unmodifiableSet(EnumSet.of(one)));
+        }
+    }
+
+    /**
+     * True when the record is a project header rather than a dependency.
+     */
+    private final boolean project;
+
+    /**
+     * The group id of the artifact named by the record, the project placeholder for projects.
+     */
+    private final String groupId;
+
+    /**
+     * The artifact id of the artifact named by the record, the project name for projects.
+     */
+    private final String artifactId;
+
+    /**
+     * The group id of the artifact requiring the dependency, null for projects.
+     */
+    private final String dependantGroupId;
+
+    /**
+     * The artifact id of the artifact requiring the dependency, null for projects.
+     */
+    private final String dependantArtifactId;
+
+    private final String specifiedVersion;
+
+    private final String resolvedVersion;
+
+    private final Set<ConfigurationType> configurations;
+
+    private final ResolutionType resolutionType;
+
+    /**
+     * The project name the dependency was reported for.
+     */
+    private final String source;
+
+    /**
+     * Constructor
+     */
+    public DependencyRecord(final boolean project,
+                            final String groupId,
+                            final String artifactId,
+                            final String dependantGroupId,
+                            final String dependantArtifactId,
+                            final String specifiedVersion,
+                            final String resolvedVersion,
+                            final Set<ConfigurationType> configurations,
+                            final ResolutionType resolutionType,
+                            final String source) {
+        this.project = project;
+        this.groupId = groupId;
+        this.artifactId = artifactId;
+        this.dependantGroupId = dependantGroupId;
+        this.dependantArtifactId = dependantArtifactId;
+        this.specifiedVersion = specifiedVersion;
+        this.resolvedVersion = resolvedVersion;
+        this.configurations = configurations.size() == 1 ? SINGLE_CONFIGURATIONS.get(configurations.iterator().next()) :
+                              Collections.unmodifiableSet(EnumSet.copyOf(configurations));
+        this.resolutionType = resolutionType;
+        this.source = source;
+    }
+
+    /**
+     * Create a record for a project header
+     * @param projectName project name extracted from the dependency file
+     * @return the project record
+     */
+    public static DependencyRecord project (final String projectName) {
+        return new DependencyRecord(true, PROJECT_GROUP_ID, projectName, null, null, null, null,
+                                    SINGLE_CONFIGURATIONS.get(ConfigurationType.UNKNOWN), ResolutionType.NORMAL, projectName);
+    }
+
+    /**
+     * Create a record for a dependency
+     * @param dependant the record of the artifact which requires the dependency
+     * @param groupId the group id of the dependee
+     * @param artifactId the artifact id of the dependee
+     * @param specifiedVersion the specified version of the dependee
+     * @param resolvedVersion the version resolved, when different from the specified
+     * @param configuration the Gradle configuration the dependency was reported for
+     * @param resolutionType how Gradle resolved the dependency
+     * @param source the project name the dependency was reported for
+     * @return the dependency record
+     */
+    public static DependencyRecord dependency (final DependencyRecord dependant,
+                                               final String groupId,
+                                               final String artifactId,
+                                               final String specifiedVersion,
+                                               final String resolvedVersion,
+                                               final ConfigurationType configuration,
+                                               final ResolutionType resolutionType,
+                                               final String source) {
+        return dependency(dependant, groupId, artifactId, specifiedVersion, resolvedVersion,
+                          SINGLE_CONFIGURATIONS.get(configuration), resolutionType, source);
+    }
+
+    /**
+     * Create a record for a dependency found in several configurations
+     * @param dependant the record of the artifact which requires the dependency
+     * @param groupId the group id of the dependee
+     * @param artifactId the artifact id of the dependee
+     * @param specifiedVersion the specified version of the dependee
+     * @param resolvedVersion the version resolved, when different from the specified
+     * @param configurations the Gradle configurations the dependency was reported for, at least one
+     * @param resolutionType how Gradle resolved the dependency
+     * @param source the project name the dependency was reported for
+     * @return the dependency record
+     */
+    public static DependencyRecord dependency (final DependencyRecord dependant,
+                                               final String groupId,
+                                               final String artifactId,
+                                               final String specifiedVersion,
+                                               final String resolvedVersion,
+                                               final Set<ConfigurationType> configurations,
+                                               final ResolutionType resolutionType,
+                                               final String source) {
+        return new DependencyRecord(false, groupId, artifactId, dependant.getGroupId(), dependant.getArtifactId(),
+                                    specifiedVersion, resolvedVersion, configurations, resolutionType, source);
+    }
+
+    public boolean isProject() {
+        return project;
+    }
+
+    public String getGroupId() {
+        return groupId;
+    }
+
+    public String getArtifactId() {
+        return artifactId;
+    }
+
+    public String getDependantGroupId() {
+        return dependantGroupId;
+    }
+
+    public String getDependantArtifactId() {
+        return dependantArtifactId;
+    }
+
+    public String getSpecifiedVersion() {
+        return specifiedVersion;
+    }
+
+    public String getResolvedVersion() {
+        return resolvedVersion;
+    }
+
+    /**
+     * @return the configurations the dependency was reported for, a single configuration except from lockfiles
+     */
+    public Set<ConfigurationType> getConfigurations() {
+        return configurations;
+    }
+
+    public ResolutionType getResolutionType() {
+        return resolutionType;
+    }
+
+    public String getSource() {
+        return source;
+    }
+}
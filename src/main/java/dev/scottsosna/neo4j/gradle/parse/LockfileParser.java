@@ -0,0 +1,144 @@
+/*
+ * @author Scott C Sosna
+ */
+package dev.scottsosna.neo4j.gradle.parse;
+
+import dev.scottsosna.neo4j.gradle.relationship.ConfigurationType;
+import dev.scottsosna.neo4j.gradle.relationship.ResolutionType;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Parses Gradle dependency lockfiles (<i>gradle.lockfile</i>, <i>buildscript-gradle.lockfile</i>) into dependency
+ * records.  A lockfile is already flat, one <i>group:artifact:version=configuration,...</i> line per dependency
+ * with the version resolved, so there's no tree to follow: every dependency becomes a project-level dependency
+ * with its resolved version, a single record carrying every configuration recognized.
+ * <p>
+ * Lockfiles don't name their project, so the project is taken from the file name, e.g.
+ * <i>my-service.gradle.lockfile</i>, or from the directory containing a plain <i>gradle.lockfile</i>.
+ */
+public class LockfileParser {
+
+    private static final String LOCKFILE_SUFFIX = ".lockfile";
+    private static final String GRADLE_LOCKFILE = "gradle.lockfile";
+    private static final String BUILDSCRIPT_LOCKFILE = "buildscript-gradle.lockfile";
+
+    //  Important lockfile Strings that we need to look for
+    private static final char ARTIFACT_SEPARATOR = ':';
+    private static final char CONFIGURATION_INDICATION = '=';
+    private static final char CONFIGURATION_SEPARATOR = ',';
+    private static final String LOCKFILE_COMMENT = "#";
+    private static final String LOCKFILE_EMPTY = "empty=";
+
+    /**
+     * Every value parsed passes through the pool, so repeated values share a single copy
+     */
+    private final StringPool pool;
+
+    /**
+     * Constructor
+     * @param pool deduplicates the values parsed, usually shared by everything parsed in a load
+     */
+    public LockfileParser(final StringPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * @return true when the file is a Gradle lockfile, based on its name
+     */
+    public static boolean isLockfile (final File file) {
+        return file.getName().endsWith(LOCKFILE_SUFFIX);
+    }
+
+    /**
+     * Determine the project a lockfile belongs to: the file name preceding <i>gradle.lockfile</i> or
+     * <i>buildscript-gradle.lockfile</i> or, when nothing precedes it, the name of the directory.
+     * @param file the lockfile
+     * @return the project name
+     */
+    public static String projectName (final File file) {
+
+        String name = file.getName();
+        if (name.endsWith(BUILDSCRIPT_LOCKFILE)) {
+            name = name.substring(0, name.length() - BUILDSCRIPT_LOCKFILE.length());
+        } else if (name.endsWith(GRADLE_LOCKFILE)) {
+            name = name.substring(0, name.length() - GRADLE_LOCKFILE.length());
+        } else {
+            name = name.substring(0, name.length() - LOCKFILE_SUFFIX.length());
+        }
+
+        //  Strip the separator between the project and the lockfile name, e.g. "my-service." or "my-service-"
+        while (name.endsWith(".") || name.endsWith("-")) {
+            name = name.substring(0, name.length() - 1);
+        }
+
+        if (name.isEmpty()) {
+            File directory = file.getAbsoluteFile().getParentFile();
+            name = directory != null ? directory.getName() : file.getName();
+        }
+
+
+        return name;
+    }
+
+    /**
+     * Processes the lines of a lockfile into records
+     * @param projectName the project the lockfile belongs to
+     * @param lines individual lines from the lockfile
+     * @return the project record followed by a dependency record for each dependency
+     */
+    public List<DependencyRecord> parse (final String projectName,
+                                         final List<String> lines) {
+
+        List<DependencyRecord> records = new ArrayList<>(lines.size());
+        String source = pool.intern(projectName);
+        DependencyRecord project = DependencyRecord.project(source);
+        records.add(project);
+
+        for (String line : lines) {
+            //  Comments, blank lines and the configurations without dependencies are skipped
+            if (line.isEmpty() || line.startsWith(LOCKFILE_COMMENT) || line.startsWith(LOCKFILE_EMPTY)) {
+                continue;
+            }
+
+            //  Split the line into the artifact's constituent parts and its configurations.
+            int configurations = line.lastIndexOf(CONFIGURATION_INDICATION);
+            int groupEnd = line.indexOf(ARTIFACT_SEPARATOR);
+            int artifactEnd = groupEnd < 0 ? -1 : line.indexOf(ARTIFACT_SEPARATOR, groupEnd + 1);
+            if (configurations < 0 || artifactEnd < 0 || artifactEnd > configurations) {
+                continue;
+            }
+
+            String groupId = pool.intern(line, 0, groupEnd);
+            String artifactId = pool.intern(line, groupEnd + 1, artifactEnd);
+            String resolvedVersion = pool.intern(line, artifactEnd + 1, configurations);
+
+            //  One record with all of the dependency's configurations, loaded as a single relationship.
+            //  Configurations that aren't recognized are skipped, as is a dependency without any recognized.
+            Set<ConfigurationType> found = EnumSet.noneOf(ConfigurationType.class);
+            int start = configurations + 1;
+            while (start < line.length()) {
+                int end = line.indexOf(CONFIGURATION_SEPARATOR, start);
+                end = end < 0 ? line.length() : end;
+
+                ConfigurationType config = ConfigurationType.findByGradleString(pool.intern(line, start, end));
+                if (config != ConfigurationType.UNKNOWN) {
+                    found.add(config);
+                }
+                start = end + 1;
+            }
+
+            if (!found.isEmpty()) {
+                records.add(DependencyRecord.dependency(project, groupId, artifactId, null, resolvedVersion,
+                                                        found, ResolutionType.NORMAL, source));
+            }
+        }
+
+
+        return records;
+    }
+}
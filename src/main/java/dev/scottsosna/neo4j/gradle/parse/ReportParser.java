@@ -0,0 +1,338 @@
+/*
+ * @author Scott C Sosna
+ */
+package dev.scottsosna.neo4j.gradle.parse;
+
+import dev.scottsosna.neo4j.gradle.relationship.ConfigurationType;
+import dev.scottsosna.neo4j.gradle.relationship.ResolutionType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Stack;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Parses the output of <i>gradle dependencies</i> into dependency records, without touching the database.
+ */
+public class ReportParser {
+
+    //  Each level in gradle is prefixed with a character and 4 spaces, so always substring 5 characters for each
+    //  level, either to go one dependency level deeper or to extract the artifact information
+    private static final int GRADLE_LEVEL_WIDTH = 5;
+
+    //  Important Gradle Strings that we need to look for
+    private static final String ARTIFACT_SEPARATOR = ":";
+    private static final String GRADLE_CLASSPATH = "Classpath";
+    private static final String GRADLE_ARTIFACT_CURRENT_LEVEL = "+";
+    private static final String GRADLE_ARTIFACT_LAST_LEVEL = "\\";
+    private static final String GRADLE_ARTIFACT_NEXT_LEVEL = "|";
+    private static final String GRADLE_PROJECT = "Project '";
+    private static final String GRADLE_RESOLVED_INDICATION = "->";
+    private static final String GRADLE_ROOT_PROJECT = "Root project '";
+
+    //  When parsing in parallel, sections are combined into chunks of at least this many lines so that each task
+    //  has enough work to be worth scheduling.
+    private static final int MIN_CHUNK_LINES = 4096;
+
+    /**
+     * When true, independent sections of a report are parsed in parallel on the common fork-join pool
+     */
+    private final boolean parallel;
+
+    /**
+     * Every value parsed passes through the pool, so repeated values share a single copy
+     */
+    private final StringPool pool;
+
+    /**
+     * Minimum number of lines in each section parsed in parallel
+     */
+    private final int chunkLines;
+
+    /**
+     * Constructor
+     * @param parallel true to parse independent sections of a report in parallel
+     * @param pool deduplicates the values parsed, usually shared by everything parsed in a load
+     */
+    public ReportParser(final boolean parallel,
+                        final StringPool pool) {
+        this(parallel, pool, MIN_CHUNK_LINES);
+    }
+
+    /**
+     * Constructor, for splitting reports smaller than would normally be worth parsing in parallel
+     * @param parallel true to parse independent sections of a report in parallel
+     * @param pool deduplicates the values parsed, usually shared by everything parsed in a load
+     * @param chunkLines minimum number of lines in each section parsed in parallel
+     */
+    ReportParser(final boolean parallel,
+                 final StringPool pool,
+                 final int chunkLines) {
+        this.parallel = parallel;
+        this.pool = pool;
+        this.chunkLines = chunkLines;
+    }
+
+    /**
+     * Processes the output from the Gradle dependency tree into records
+     * @param lines individual lines from the Gradle dependency tree
+     * @return project and dependency records, in the order found
+     */
+    public List<DependencyRecord> parse (final List<String> lines) {
+
+        if (!parallel) {
+            return parse(new Section(lines, 0, null, ConfigurationType.UNKNOWN), lines.size());
+        }
+
+        //  Each section is parsed independently, in parallel, and the records combined in the original order so
+        //  the result is exactly the same as parsing sequentially.
+        List<Section> sections = scanSections(lines);
+        List<DependencyRecord> records = new ArrayList<>();
+        List<List<DependencyRecord>> parsed = IntStream.range(0, sections.size())
+                                                       .parallel()
+                                                       .mapToObj(i -> parse(sections.get(i), i + 1 < sections.size() ? sections.get(i + 1).start : lines.size()))
+                                                       .collect(Collectors.toList());
+        parsed.forEach(records::addAll);
+
+
+        return records;
+    }
+
+    /**
+     * Quickly find where independent sections of the report start.  The dependency tree is reset by every project
+     * header, classpath header and top-level dependency, so parsing can start at any of them given only the project
+     * and configuration in effect at that point.
+     * @param lines individual lines from the Gradle dependency tree
+     * @return sections of at least chunkLines lines (except perhaps the last), in order
+     */
+    List<Section> scanSections (final List<String> lines) {
+
+        List<Section> sections = new ArrayList<>();
+        ConfigurationType config = ConfigurationType.UNKNOWN;
+        String projectName = null;
+        int chunkStart = -chunkLines;
+
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            boolean boundary;
+
+            //  Same checks, in the same order, as parsing.
+            if (line.startsWith (GRADLE_ROOT_PROJECT) || line.startsWith (GRADLE_PROJECT) || line.contains (GRADLE_CLASSPATH)) {
+                boundary = true;
+            } else {
+                boundary = config != ConfigurationType.UNKNOWN && line.startsWith(GRADLE_ARTIFACT_CURRENT_LEVEL);
+            }
+
+            if (boundary && i - chunkStart >= chunkLines) {
+                sections.add(new Section(lines, i, projectName, config));
+                chunkStart = i;
+            }
+
+            //  Track the state in effect for the start of the next section.
+            if (line.startsWith (GRADLE_ROOT_PROJECT)) {
+                projectName = pool.intern(line, GRADLE_ROOT_PROJECT.length(), line.length() -1);
+            } else if (line.startsWith (GRADLE_PROJECT)) {
+                projectName = pool.intern(line, GRADLE_PROJECT.length(), line.length() - 1);
+            } else if (line.contains (GRADLE_CLASSPATH)) {
+                config = ConfigurationType.findByGradleString(line.substring(0, line.indexOf(GRADLE_CLASSPATH) + GRADLE_CLASSPATH.length()));
+            }
+        }
+
+        //  Anything before the first boundary has no project or configuration, so produces no records anyway.
+        if (sections.isEmpty()) {
+            sections.add(new Section(lines, 0, null, ConfigurationType.UNKNOWN));
+        }
+
+
+        return sections;
+    }
+
+    /**
+     * Processes a section of the output from the Gradle dependency tree into records
+     * @param section the section and the state in effect where it starts
+     * @param sectionEnd index of the line following the section
+     * @return project and dependency records, in the order found
+     */
+    private List<DependencyRecord> parse (final Section section,
+                                          final int sectionEnd) {
+
+        List<DependencyRecord> records = new ArrayList<>();
+
+        //  A stack is used to track the dependee artifacts, as artifacts are found they're added
+        //  the stack and popped off as needed when any/all dependendents are processed.  A section starting
+        //  within a project always has the project as the root of the stack.
+        Stack<DependencyRecord> stack = new Stack<>();
+
+        ConfigurationType config = section.config;
+        String projectName = section.projectName;
+        if (projectName != null) {
+            stack.push(DependencyRecord.project(projectName));
+        }
+
+        for (String line : section.lines.subList(section.start, sectionEnd)) {
+            ResolutionType rt;
+
+            //  Try and extract "Root project" or "Project" from the output.  A project is always the root
+            //  of the dependency tree, so anything left from a previous project is discarded.
+            if (line.startsWith (GRADLE_ROOT_PROJECT)) {
+                projectName = pool.intern(line, GRADLE_ROOT_PROJECT.length(), line.length() -1);
+                stack.clear();
+                stack.push(DependencyRecord.project(projectName));
+                records.add(stack.peek());
+                continue;
+            } else if (line.startsWith (GRADLE_PROJECT)) {
+                projectName = pool.intern(line, GRADLE_PROJECT.length(), line.length() - 1);
+                stack.clear();
+                stack.push(DependencyRecord.project(projectName));
+                records.add(stack.peek());
+                continue;
+            } else if (line.contains (GRADLE_CLASSPATH)) {
+                config = ConfigurationType.findByGradleString(line.substring(0, line.indexOf(GRADLE_CLASSPATH) + GRADLE_CLASSPATH.length()));
+                continue;
+            } else if (config == ConfigurationType.UNKNOWN) {
+                continue;
+            } else {
+                //  Any line not starting with "+" or "|" can be skipped.
+                if (!line.startsWith(GRADLE_ARTIFACT_CURRENT_LEVEL) && !line.startsWith(GRADLE_ARTIFACT_NEXT_LEVEL)) {
+                    continue;
+                } else {
+                    //  Determine the type of resolution.
+                    rt = ResolutionType.determine(line);
+                    if (rt == ResolutionType.SKIPPED) {
+                        continue;
+                    }
+                }
+            }
+
+            //  When the resolution type is not default/normal, it's excluded from the end of the line.  Need to add
+            //  "-1" for the space that always preceeds the resolution specification.  The line is parsed in place by
+            //  offset, values only being copied when new to the string pool.
+            int start = 0;
+            int end = line.length();
+            if (rt != ResolutionType.NORMAL) {
+                end -= rt.getIdentifier().length() + 1;
+            }
+
+            //  Figure out which level we're at in the dependency tree: if first character is '+' or '\' we have an
+            //  artifact to process
+            int level = 1;
+            while (start < end && line.charAt(start) != GRADLE_ARTIFACT_CURRENT_LEVEL.charAt(0) &&
+                   line.charAt(start) != GRADLE_ARTIFACT_LAST_LEVEL.charAt(0)) {
+                start += GRADLE_LEVEL_WIDTH;
+                level++;
+            }
+            if (start >= end) {
+                continue;
+            }
+
+            //  When the stack size is greater than the level just identified, we've moved up one or more
+            //  levels (i.e., the previous artifact was that leaf node in the dependency tree) so pop nodes.
+            //
+            //  When the stack size is the same as the level, we had two successive artifacts at the same
+            //  level, indicating the previous artifact did not have any child dependencies.  Therefore,
+            //  that one needs to be popped off the stack as well.
+            while (level > 0 && stack.size() > level) {
+                stack.pop();
+            }
+
+            //  Dependencies before any project header have nothing to depend from.
+            if (stack.isEmpty()) {
+                continue;
+            }
+
+            //  Find the separators between the artifact's constituent parts
+            start += GRADLE_LEVEL_WIDTH;
+            int groupEnd = indexOf(line, ARTIFACT_SEPARATOR, start, end);
+            if (groupEnd < 0) {
+                continue;
+            }
+            int artifactEnd = indexOf(line, ARTIFACT_SEPARATOR, groupEnd + 1, end);
+            String groupId = value(line, start, groupEnd);
+            String artifactId;
+
+            //  Either specified or resolved is always present, but possible to have either or both (3 combinations).
+            String resolvedVersion = null;
+            String specifiedVersion = null;
+            if (artifactEnd < 0 || artifactEnd + 1 == end) {
+                //  No explicit version, which should mean the artifact has the resolved version.
+                int resolved = indexOf(line, GRADLE_RESOLVED_INDICATION, groupEnd + 1, end);
+                if (resolved >= 0) {
+                    artifactId = value(line, groupEnd + 1, resolved);
+                    specifiedVersion = value(line, resolved + GRADLE_RESOLVED_INDICATION.length(), end);
+                } else {
+                    artifactId = value(line, groupEnd + 1, artifactEnd < 0 ? end : artifactEnd);
+                }
+            } else {
+                artifactId = value(line, groupEnd + 1, artifactEnd);
+                int versionEnd = indexOf(line, ARTIFACT_SEPARATOR, artifactEnd + 1, end);
+                versionEnd = versionEnd < 0 ? end : versionEnd;
+                int resolved = indexOf(line, GRADLE_RESOLVED_INDICATION, artifactEnd + 1, versionEnd);
+                if (resolved >= 0) {
+                    specifiedVersion = value(line, artifactEnd + 1, resolved);
+                    resolvedVersion = value(line, resolved + GRADLE_RESOLVED_INDICATION.length(), versionEnd);
+                } else {
+                    specifiedVersion = value(line, artifactEnd + 1, versionEnd);
+                }
+            }
+
+            //  The stack's top record is the dependant artifact, which requires the dependee just found on the
+            //  current line.  Push the new record on the stack as it may have dependencies of its own.
+            DependencyRecord record = DependencyRecord.dependency(stack.peek(), groupId, artifactId, specifiedVersion,
+                                                                  resolvedVersion, config, rt, projectName);
+            records.add(record);
+            stack.push(record);
+        }
+
+
+        return records;
+    }
+
+    /**
+     * @return the pooled value between the offsets, with leading and trailing whitespace removed as trim() does
+     */
+    private String value (final String line,
+                          final int start,
+                          final int end) {
+        int first = start;
+        int last = end;
+        while (first < last && line.charAt(first) <= ' ') {
+            first++;
+        }
+        while (last > first && line.charAt(last - 1) <= ' ') {
+            last--;
+        }
+        return pool.intern(line, first, last);
+    }
+
+    /**
+     * @return index of the first occurrence of the string between the offsets, -1 if not found
+     */
+    private static int indexOf (final String line,
+                                final String find,
+                                final int start,
+                                final int end) {
+        int found = line.indexOf(find, start);
+        return found >= 0 && found + find.length() <= end ? found : -1;
+    }
+
+    /**
+     * Section of a report which can be parsed independently, along with the state in effect where it starts.
+     */
+    static class Section {
+        final List<String> lines;
+        final int start;
+        final String projectName;
+        final ConfigurationType config;
+
+        Section(final List<String> lines,
+                final int start,
+                final String projectName,
+                final ConfigurationType config) {
+            this.lines = lines;
+            this.start = start;
+            this.projectName = projectName;
+            this.config = config;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * @author Scott C Sosna
+ */
+package dev.scottsosna.neo4j.gradle.parse;
+
+/**
+ * Deduplicates the strings parsed from reports.  The same few thousand group ids, artifact ids and versions repeat
+ * across millions of lines, so keeping a single copy of each keeps memory flat however many reports are loaded.
+ * <p>
+ * Values are looked up directly from a region of the line being parsed, so a substring is only created the first
+ * time a value is seen.  The pool is split into independently locked segments so sections parsed in parallel
+ * rarely wait on each other.  A pool is meant to live for a single load and is never trimmed.
+ */
+public class StringPool {
+
+    private static final int SEGMENTS = 16;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    /**
+     * Constructor
+     */
+    public StringPool() {
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * Get the pooled copy of a region of a line, adding it to the pool if not already present
+     * @param line the line being parsed
+     * @param start index of the first character of the value
+     * @param end index following the last character of the value
+     * @return the pooled value, always the same instance for the same characters
+     */
+    public String intern (final String line,
+                          final int start,
+                          final int end) {
+
+        //  Same hash as String.hashCode(), computed without creating the string.
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + line.charAt(i);
+        }
+
+        //  Spread the hash so that both the segment and the slot within it use well-mixed bits.
+        int spread = hash ^ (hash >>> 16);
+        return segments[(spread >>> 24) & (SEGMENTS - 1)].intern(line, start, end, spread);
+    }
+
+    /**
+     * Get the pooled copy of a value
+     * @param value the value, may be null
+     * @return the pooled value, or null
+     */
+    public String intern (final String value) {
+        return value == null ? null : intern(value, 0, value.length());
+    }
+
+    /**
+     * @return the number of distinct values in the pool
+     */
+    public int size() {
+        int size = 0;
+        for (Segment one : segments) {
+            synchronized (one) {
+                size += one.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return the number of lookups that found the value already pooled
+     */
+    public long getHits() {
+        long hits = 0;
+        for (Segment one : segments) {
+            synchronized (one) {
+                hits += one.hits;
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * @return the number of lookups that added a new value
+     */
+    public long getMisses() {
+        long misses = 0;
+        for (Segment one : segments) {
+            synchronized (one) {
+                misses += one.size;
+            }
+        }
+        return misses;
+    }
+
+    /**
+     * Open-addressed hash table with linear probing, doubling when more than half full.
+     */
+    private static class Segment {
+        private String[] values = new String[INITIAL_CAPACITY];
+        private int[] hashes = new int[INITIAL_CAPACITY];
+        private int size;
+        private long hits;
+
+        synchronized String intern (final String line,
+                                    final int start,
+                                    final int end,
+                                    final int hash) {
+
+            int length = end - start;
+            int mask = values.length - 1;
+            for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                String value = values[slot];
+                if (value == null) {
+                    value = line.substring(start, end);
+                    values[slot] = value;
+                    hashes[slot] = hash;
+                    if (++size > values.length / 2) {
+                        resize();
+                    }
+                    return value;
+                }
+
+                if (hashes[slot] == hash && value.length() == length && line.regionMatches(start, value, 0, length)) {
+                    hits++;
+                    return value;
+                }
+            }
+        }
+
+        private void resize() {
+            String[] oldValues = values;
+            int[] oldHashes = hashes;
+            values = new String[oldValues.length * 2];
+            hashes = new int[oldValues.length * 2];
+
+            int mask = values.length - 1;
+            for (int i = 0; i < oldValues.length; i++) {
+                if (oldValues[i] != null) {
+                    int slot = oldHashes[i] & mask;
+                    while (values[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    values[slot] = oldValues[i];
+                    hashes[slot] = oldHashes[i];
+                }
+            }
+        }
+    }
+}
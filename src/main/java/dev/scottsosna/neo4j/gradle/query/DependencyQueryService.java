@@ -0,0 +1,271 @@
+/*
+ * @author Scott C Sosna
+ */
+package dev.scottsosna.neo4j.gradle.query;
+
+import dev.scottsosna.neo4j.gradle.node.Artifact;
+import dev.scottsosna.neo4j.gradle.relationship.DependsOn;
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Read-side queries against the loaded dependency graph.  The same questions get asked over and over, so results
+ * are cached until they expire, are evicted or a load commits.  Every commit changes the version of the graph's
+ * load marker, which is checked at most once per check interval, so loads from any process are noticed; loads in
+ * the same process can invalidate immediately (see {@link #invalidate()}).  Results are shared between callers and
+ * must not be modified.
+ */
+public class DependencyQueryService {
+
+    private static final String DIRECT_DEPENDENCIES =
+        "MATCH (a:Artifact {groupId: $groupId, artifactId: $artifactId})-[r:DEPENDS_ON]->(d:Artifact) RETURN a, r, d";
+    private static final String FIRST_DEPENDENCIES =
+        "MATCH (a:Artifact {groupId: $groupId, artifactId: $artifactId})-[:DEPENDS_ON]->(d:Artifact) RETURN DISTINCT d";
+    private static final String NEXT_DEPENDENCIES =
+        "MATCH (a:Artifact)-[:DEPENDS_ON]->(d:Artifact) WHERE id(a) IN $ids RETURN DISTINCT d";
+    private static final String DEPENDANTS =
+        "MATCH (d:Artifact)-[:DEPENDS_ON]->(a:Artifact {groupId: $groupId, artifactId: $artifactId}) RETURN DISTINCT d";
+    private static final String RESOLVED_VERSIONS =
+        "MATCH (:Artifact)-[r:DEPENDS_ON]->(a:Artifact {groupId: $groupId, artifactId: $artifactId}) " +
+        "RETURN DISTINCT coalesce(r.resolvedVersion, r.specifiedVersion) AS version";
+    private static final String LOAD_VERSION =
+        "OPTIONAL MATCH (m:LoadMarker {name: 'load'}) RETURN m.version AS version";
+
+    //  How often the load marker is checked, when not specified
+    private static final long DEFAULT_CHECK_MILLIS = 1000;
+
+    private final SessionFactory sessionFactory;
+
+    private final LruCache<String, Object> cache;
+
+    /**
+     * Minimum time between checks of the load marker
+     */
+    private final long checkMillis;
+
+    /**
+     * Version of the load marker when last checked and when that was, guarded by this service
+     */
+    private Object loadVersion;
+    private boolean versionRead;
+    private long lastChecked;
+
+    //  Latency of the queries which had to go to the database
+    private final AtomicLong databaseQueries = new AtomicLong();
+    private final AtomicLong databaseNanos = new AtomicLong();
+
+    /**
+     * Constructor
+     * @param sessionFactory session factory for connecting to Neo4j database
+     * @param maxEntries maximum number of results cached
+     * @param ttlMillis time a result remains cached
+     */
+    public DependencyQueryService(final SessionFactory sessionFactory,
+                                  final int maxEntries,
+                                  final long ttlMillis) {
+        this(sessionFactory, maxEntries, ttlMillis, DEFAULT_CHECK_MILLIS);
+    }
+
+    /**
+     * Constructor
+     * @param sessionFactory session factory for connecting to Neo4j database
+     * @param maxEntries maximum number of results cached
+     * @param ttlMillis time a result remains cached
+     * @param checkMillis minimum time between checks for loads committed, the longest a stale result is returned
+     */
+    public DependencyQueryService(final SessionFactory sessionFactory,
+                                  final int maxEntries,
+                                  final long ttlMillis,
+                                  final long checkMillis) {
+        this.sessionFactory = sessionFactory;
+        this.cache = new LruCache<>(maxEntries, ttlMillis);
+        this.checkMillis = checkMillis;
+    }
+
+    /**
+     * @param artifact the dependant artifact
+     * @return the dependencies the artifact directly requires, with their versions and configurations
+     */
+    public List<DependsOn> getDirectDependencies (final Artifact artifact) {
+        return cached("direct", artifact.getGroupId(), artifact.getArtifactId(), () -> {
+            List<DependsOn> toReturn = new ArrayList<>();
+            session().query(DependsOn.class, DIRECT_DEPENDENCIES, params(artifact.getGroupId(), artifact.getArtifactId()))
+                     .forEach(toReturn::add);
+            return Collections.unmodifiableList(toReturn);
+        });
+    }
+
+    /**
+     * Rather than matching every path, whose number grows exponentially with the depth of a dependency graph,
+     * the dependencies are expanded a level at a time with each artifact expanded only once.
+     * @param artifact the dependant artifact
+     * @return every artifact the artifact requires, directly or indirectly
+     */
+    public List<Artifact> getTransitiveDependencies (final Artifact artifact) {
+        return cached("transitive", artifact.getGroupId(), artifact.getArtifactId(), () -> {
+            Session session = session();
+            Map<Long, Artifact> found = new LinkedHashMap<>();
+            Iterable<Artifact> level = session.query(Artifact.class, FIRST_DEPENDENCIES,
+                                                     params(artifact.getGroupId(), artifact.getArtifactId()));
+            while (true) {
+                List<Long> ids = new ArrayList<>();
+                for (Artifact one : level) {
+                    if (found.putIfAbsent(one.getId(), one) == null) {
+                        ids.add(one.getId());
+                    }
+                }
+                if (ids.isEmpty()) {
+                    break;
+                }
+
+                level = session.query(Artifact.class, NEXT_DEPENDENCIES, Collections.singletonMap("ids", ids));
+            }
+
+
+            return Collections.unmodifiableList(new ArrayList<>(found.values()));
+        });
+    }
+
+    /**
+     * @param groupId the group id of the dependee
+     * @param artifactId the artifact id of the dependee
+     * @return the artifacts which directly depend on the artifact
+     */
+    public List<Artifact> getDependants (final String groupId,
+                                         final String artifactId) {
+        return cached("dependants", groupId, artifactId, () -> artifacts(DEPENDANTS, groupId, artifactId));
+    }
+
+    /**
+     * @param groupId the group id of the dependee
+     * @param artifactId the artifact id of the dependee
+     * @return the versions of the artifact resolved across all dependants
+     */
+    public Set<String> getResolvedVersions (final String groupId,
+                                            final String artifactId) {
+        return cached("versions", groupId, artifactId, () -> {
+            Set<String> toReturn = new TreeSet<>();
+            session().query(RESOLVED_VERSIONS, params(groupId, artifactId))
+                     .forEach(row -> {
+                         if (row.get("version") != null) {
+                             toReturn.add((String) row.get("version"));
+                         }
+                     });
+            return Collections.unmodifiableSet(toReturn);
+        });
+    }
+
+    /**
+     * Discard all cached results, called whenever a load in the same process commits.
+     */
+    public void invalidate() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * @return the fraction of queries answered from the cache
+     */
+    public double getHitRate() {
+        return cache.getHitRate();
+    }
+
+    public long getHits() {
+        return cache.getHits();
+    }
+
+    public long getMisses() {
+        return cache.getMisses();
+    }
+
+    public long getEvictions() {
+        return cache.getEvictions();
+    }
+
+    /**
+     * @return average milliseconds for the queries which went to the database
+     */
+    public double getAverageDatabaseMillis() {
+        long queries = databaseQueries.get();
+        return queries == 0 ? 0 : databaseNanos.get() / 1_000_000.0 / queries;
+    }
+
+    /**
+     * Get a result from the cache, querying the database when not cached.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T cached (final String query,
+                          final String groupId,
+                          final String artifactId,
+                          final Supplier<T> loader) {
+        checkLoaded();
+        return (T) cache.get(query + ":" + groupId + ":" + artifactId, () -> {
+            long start = System.nanoTime();
+            try {
+                return loader.get();
+            } finally {
+                databaseQueries.incrementAndGet();
+                databaseNanos.addAndGet(System.nanoTime() - start);
+            }
+        });
+    }
+
+    /**
+     * Discard all cached results when the load marker's version changed since last checked, no more often than
+     * the check interval.  The cache drops any result read before it was invalidated, so a query racing with the
+     * check doesn't cache a result from before the load.  Only one caller per interval reads the marker, outside
+     * the lock so that other callers aren't held up by the database.
+     */
+    private void checkLoaded() {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            if (now - lastChecked < checkMillis) {
+                return;
+            }
+            lastChecked = now;
+        }
+
+        Object version = session().query(LOAD_VERSION, Collections.emptyMap()).iterator().next().get("version");
+        synchronized (this) {
+            if (versionRead && !Objects.equals(version, loadVersion)) {
+                cache.invalidateAll();
+            }
+            loadVersion = version;
+            versionRead = true;
+        }
+    }
+
+    private List<Artifact> artifacts (final String cypher,
+                                      final String groupId,
+                                      final String artifactId) {
+        List<Artifact> toReturn = new ArrayList<>();
+        session().query(Artifact.class, cypher, params(groupId, artifactId)).forEach(toReturn::add);
+        return Collections.unmodifiableList(toReturn);
+    }
+
+    /**
+     * @return a new session, so that queries from different threads don't share one
+     */
+    private Session session() {
+        return sessionFactory.openSession();
+    }
+
+    private static Map<String, Object> params (final String groupId,
+                                               final String artifactId) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("groupId", groupId);
+        params.put("artifactId", artifactId);
+        return params;
+    }
+}
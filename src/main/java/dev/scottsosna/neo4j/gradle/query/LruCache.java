@@ -0,0 +1,135 @@
+/*
+ * @author Scott C Sosna
+ */
+package dev.scottsosna.neo4j.gradle.query;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Least-recently-used cache bounded by both the number of entries and the time since an entry was loaded.
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class LruCache<K, V> {
+
+    /**
+     * Entries in access order, so the eldest is the least recently used.
+     */
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    /**
+     * Time an entry remains valid after being loaded
+     */
+    private final long ttlMillis;
+
+    /**
+     * Incremented by {@link #invalidateAll()}, so a value loaded before an invalidation isn't cached after it
+     */
+    private long generation;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Constructor
+     * @param maxEntries maximum number of entries before the least recently used is evicted
+     * @param ttlMillis time an entry remains valid after being loaded
+     */
+    public LruCache(final int maxEntries,
+                    final long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry (final Map.Entry<K, Entry<V>> eldest) {
+                if (size() > maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Get the cached value or, if missing or expired, load and cache it.  Loading happens outside of the lock, so
+     * concurrent misses on the same key may each load the value.  A value loaded while the cache is invalidated
+     * is returned but not cached, since it may have been read before whatever caused the invalidation.
+     * @param key the key
+     * @param loader loads the value when not cached
+     * @return the value
+     */
+    public V get (final K key,
+                  final Supplier<V> loader) {
+
+        long loadedGeneration;
+        synchronized (this) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && System.currentTimeMillis() - entry.loaded < ttlMillis) {
+                hits++;
+                return entry.value;
+            }
+
+            if (entry != null) {
+                entries.remove(key);
+            }
+            misses++;
+            loadedGeneration = generation;
+        }
+
+        V value = loader.get();
+        synchronized (this) {
+            if (loadedGeneration == generation) {
+                entries.put(key, new Entry<>(value));
+            }
+        }
+
+
+        return value;
+    }
+
+    /**
+     * Discard every entry
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return hits as a fraction of all gets, 0 if nothing requested yet
+     */
+    public synchronized double getHitRate() {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    /**
+     * A cached value and when it was loaded.
+     */
+    private static class Entry<V> {
+        final V value;
+        final long loaded = System.currentTimeMillis();
+
+        Entry(final V value) {
+            this.value = value;
+        }
+    }
+}
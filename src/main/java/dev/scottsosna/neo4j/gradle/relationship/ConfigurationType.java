@@ -12,7 +12,10 @@ public enum ConfigurationType {
     RUNTIME ("runtimeClasspath"),
     TEST_COMPILE ("testCompileClasspath"),
     TEST_RUNTIME ("testRuntimeClasspath"),
-    UNKNOWN ("unknown");
+    UNKNOWN ("unknown"),
+
+    //  Build script classpath, only found in buildscript lockfiles.  Declared last as snapshots store ordinals.
+    BUILDSCRIPT ("classpath");
 
     /**
      * Gradle indicates for which configuration the dependency tree is being generated.  The configuration can be
@@ -0,0 +1,79 @@
+/*
+ * @author Scott C Sosna
+ */
+package dev.scottsosna.neo4j.gradle.shard;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Routes each project to the target it's loaded into.  Routes are defined in the same format as the artifact
+ * mapping file, "prefix=target", and the first route whose prefix the project name starts with wins.  Projects
+ * not matching any route go to the default target.
+ */
+public class ShardRouter {
+
+    /**
+     * Prefix of the project name in routes[0], the target routed to in routes[1]
+     */
+    private final String[][] routes;
+
+    /**
+     * Constructor
+     * @param routes prefix and target of each route, in order
+     */
+    public ShardRouter(final String[][] routes) {
+        this.routes = routes;
+    }
+
+    /**
+     * Load the routes from a file
+     * @param file file in the format "payments-=payments"
+     * @return the router
+     * @throws IOException thrown if the file can't be read
+     */
+    public static ShardRouter load (final File file) throws IOException {
+
+        List<String[]> routes = new ArrayList<>();
+        try (BufferedReader br = Files.newBufferedReader(file.toPath())) {
+            br.lines().forEach (one -> {
+
+                //  Ignore comments and empty lines
+                if (one.length() > 0 && !one.startsWith("#")) {
+                    String[] route = one.split("=");
+                    if (route.length == 2) {
+                        routes.add(new String[] {route[0].trim(), route[1].trim()});
+                    }
+                }
+            });
+        }
+
+        //  Convert into raw array for (hopefully) faster processing than a Java collection
+        return new ShardRouter(routes.toArray(new String[routes.size()][2]));
+    }
+
+    /**
+     * Determine the target for a project
+     * @param projectName name of the project, or the report when it has no project
+     * @return the name of the target
+     */
+    public String route (final String projectName) {
+
+        for (String[] one : routes) {
+            if (projectName.startsWith(one[0])) return one[1];
+        }
+
+        return ShardTarget.DEFAULT_NAME;
+    }
+
+    /**
+     * @return the routes, prefix and target, in order
+     */
+    public String[][] getRoutes() {
+        return routes;
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * @author Scott C Sosna
+ */
+package dev.scottsosna.neo4j.gradle.shard;
+
+import org.neo4j.ogm.config.Configuration;
+import org.neo4j.ogm.session.SessionFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * A named Neo4J database that reports can be loaded into: either a database on a shared server or a separate
+ * server.  Targets are defined in a properties file, each property prefixed by the target's name:
+ * <pre>
+ * default.uri=bolt://localhost
+ * default.username=neo4j
+ * default.password=password
+ * payments.uri=bolt://localhost
+ * payments.database=payments
+ * payments.pool=50
+ * </pre>
+ * A target is defined by its <i>uri</i>; anything not specified takes the same default as a single database.
+ */
+public class ShardTarget {
+
+    /**
+     * Target reports are loaded into when not routed elsewhere, and the only target when none are configured
+     */
+    public static final String DEFAULT_NAME = "default";
+
+    //  Configuration info for connecting to the Neo4J database, when not configured
+    private static final String DEFAULT_URI = "bolt://localhost";
+    private static final String DEFAULT_USERNAME = "neo4j";
+    private static final String DEFAULT_PASSWORD = "password";
+
+    private static final String URI_PROPERTY = ".uri";
+    private static final String USERNAME_PROPERTY = ".username";
+    private static final String PASSWORD_PROPERTY = ".password";
+    private static final String DATABASE_PROPERTY = ".database";
+    private static final String POOL_PROPERTY = ".pool";
+
+    private final String name;
+    private final String uri;
+    private final String username;
+    private final String password;
+
+    /**
+     * Database on the server, null for the server's default database
+     */
+    private final String database;
+
+    /**
+     * Maximum number of connections to the target, null for the driver's default
+     */
+    private final Integer poolSize;
+
+    /**
+     * Constructor
+     * @param name name of the target, used for routing
+     * @param uri Neo4J server
+     * @param username user connecting to the server
+     * @param password password of the user
+     * @param database database on the server, null for the default database
+     * @param poolSize maximum number of connections, null for the driver's default
+     */
+    public ShardTarget(final String name,
+                       final String uri,
+                       final String username,
+                       final String password,
+                       final String database,
+                       final Integer poolSize) {
+        this.name = name;
+        this.uri = uri;
+        this.username = username;
+        this.password = password;
+        this.database = database;
+        this.poolSize = poolSize;
+    }
+
+    /**
+     * @return the single target used when none are configured, the default database on localhost
+     */
+    public static ShardTarget defaultTarget() {
+        return new ShardTarget(DEFAULT_NAME, DEFAULT_URI, DEFAULT_USERNAME, DEFAULT_PASSWORD, null, null);
+    }
+
+    /**
+     * Load the targets defined in a properties file
+     * @param file the properties file
+     * @return the targets, by name
+     * @throws IOException thrown if the file can't be read or a target is misconfigured
+     */
+    public static Map<String, ShardTarget> load (final File file) throws IOException {
+
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file.toPath())) {
+            properties.load(reader);
+        }
+
+        //  Every target has a uri, which identifies the targets defined.
+        Map<String, ShardTarget> targets = new TreeMap<>();
+        for (String one : properties.stringPropertyNames()) {
+            if (one.endsWith(URI_PROPERTY)) {
+                String name = one.substring(0, one.length() - URI_PROPERTY.length());
+                targets.put(name, new ShardTarget(name,
+                                                  properties.getProperty(one).trim(),
+                                                  properties.getProperty(name + USERNAME_PROPERTY, DEFAULT_USERNAME).trim(),
+                                                  properties.getProperty(name + PASSWORD_PROPERTY, DEFAULT_PASSWORD),
+                                                  properties.getProperty(name + DATABASE_PROPERTY),
+                                                  poolSize(name, properties.getProperty(name + POOL_PROPERTY))));
+            }
+        }
+
+
+        return targets;
+    }
+
+    /**
+     * @param name name of the target, for reporting
+     * @param value the configured pool size, if any
+     * @return the pool size, null when not configured
+     * @throws IOException thrown if the pool size isn't a positive number
+     */
+    private static Integer poolSize (final String name,
+                                     final String value) throws IOException {
+
+        if (value == null) {
+            return null;
+        }
+
+        try {
+            int poolSize = Integer.parseInt(value.trim());
+            if (poolSize > 0) {
+                return poolSize;
+            }
+        } catch (NumberFormatException e) {
+            //  Reported below, same as a pool size that isn't positive.
+        }
+
+        throw new IOException("Invalid " + name + POOL_PROPERTY + " \"" + value + "\", must be a positive number");
+    }
+
+    /**
+     * Create a session factory, with its own connection pool, for the target
+     * @param packages packages of the node and relationship entities
+     * @return the session factory
+     */
+    public SessionFactory createSessionFactory (final String... packages) {
+
+        Configuration.Builder builder = new Configuration.Builder().uri(uri).credentials(username, password);
+        if (database != null && !database.trim().isEmpty()) {
+            builder.database(database.trim());
+        }
+        if (poolSize != null) {
+            builder.connectionPoolSize(poolSize);
+        }
+
+
+        return new SessionFactory(builder.build(), packages);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + uri + (database != null ? "/" + database : "") + ")";
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * @author Scott C Sosna
+ */
+package dev.scottsosna.neo4j.gradle.sink;
+
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+
+import java.util.Collections;
+
+/**
+ * Creates the indexes every lookup of an artifact depends on: by (groupId, artifactId) when loading, by
+ * artifactId alone when matching projects to their internal artifacts and by groupId alone when exporting in
+ * groupId order.  Without them each lookup is a scan of every Artifact node.  Also creates the uniqueness
+ * constraints on the loader's singleton nodes, so that concurrent MERGEs never create a second one.
+ */
+public final class ArtifactIndexes {
+
+    //  Neo4J 4.1 and later create named indexes only if missing; older servers only know the original syntax,
+    //  which fails when the index already exists on some versions.
+    private static final String[] INDEXES = {
+        "CREATE INDEX artifact_coordinates IF NOT EXISTS FOR (a:Artifact) ON (a.groupId, a.artifactId)",
+        "CREATE INDEX artifact_artifact_id IF NOT EXISTS FOR (a:Artifact) ON (a.artifactId)",
+        "CREATE INDEX artifact_group_id IF NOT EXISTS FOR (a:Artifact) ON (a.groupId)"
+    };
+    private static final String[] LEGACY_INDEXES = {
+        "CREATE INDEX ON :Artifact(groupId, artifactId)",
+        "CREATE INDEX ON :Artifact(artifactId)",
+        "CREATE INDEX ON :Artifact(groupId)"
+    };
+
+    //  Constraint syntax changed twice: Neo4J 4.4 and later, 4.1 to 4.3, and the original syntax.
+    private static final String[][] CONSTRAINTS = {
+        {"CREATE CONSTRAINT loader_lock_name IF NOT EXISTS FOR (l:LoaderLock) REQUIRE l.name IS UNIQUE",
+         "CREATE CONSTRAINT loader_lock_name IF NOT EXISTS ON (l:LoaderLock) ASSERT l.name IS UNIQUE",
+         "CREATE CONSTRAINT ON (l:LoaderLock) ASSERT l.name IS UNIQUE"},
+        {"CREATE CONSTRAINT load_marker_name IF NOT EXISTS FOR (m:LoadMarker) REQUIRE m.name IS UNIQUE",
+         "CREATE CONSTRAINT load_marker_name IF NOT EXISTS ON (m:LoadMarker) ASSERT m.name IS UNIQUE",
+         "CREATE CONSTRAINT ON (m:LoadMarker) ASSERT m.name IS UNIQUE"}
+    };
+
+    private ArtifactIndexes() {
+    }
+
+    /**
+     * Create the indexes and constraints if not already present.  Failures are reported but don't stop loading,
+     * which works without the indexes, only more slowly.
+     * @param sessionFactory session factory for connecting to Neo4j database
+     */
+    public static void create (final SessionFactory sessionFactory) {
+
+        Session session = sessionFactory.openSession();
+        for (int i = 0; i < INDEXES.length; i++) {
+            create(session, "index, lookups will be slower", INDEXES[i], LEGACY_INDEXES[i]);
+        }
+        for (String[] one : CONSTRAINTS) {
+            create(session, "constraint, concurrent loads may conflict", one);
+        }
+    }
+
+    /**
+     * Run each statement in turn until one succeeds, reporting the last failure unless it already exists.
+     */
+    private static void create (final Session session,
+                                final String consequence,
+                                final String... statements) {
+        for (int i = 0; i < statements.length; i++) {
+            try {
+                session.query(statements[i], Collections.emptyMap());
+                return;
+            } catch (RuntimeException e) {
+                if (i == statements.length - 1 && !String.valueOf(e.getMessage()).contains("already exists")) {
+                    System.out.println ("Unable to create " + consequence + ": " + e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * @author Scott C Sosna
+ */
+package dev.scottsosna.neo4j.gradle.sink;
+
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Purges the Neo4J database in batches, each in its own transaction, so that the transaction memory and the time
+ * locks are held stay bounded no matter how large the graph.  Relationships are deleted before nodes so that each
+ * node deleted has few, if any, relationships left.  The purge can be limited to the dependencies loaded from
+ * specific sources (project names) and/or to nodes with specific labels.
+ */
+public class BatchedPurge {
+
+    //  Progress is reported every so many batches
+    private static final int REPORT_BATCHES = 10;
+
+    //  Everything
+    private static final String DELETE_RELATIONSHIPS =
+        "MATCH ()-[r]->() WITH r LIMIT $batch DELETE r RETURN count(r) AS deleted";
+    private static final String DELETE_NODES =
+        "MATCH (n) WITH n LIMIT $batch DETACH DELETE n RETURN count(n) AS deleted";
+
+    //  Limited to sources: dependencies with other sources as well only have the sources removed, the rest are
+    //  deleted.  Dependencies without any sources aren't from the sources purged, so are left alone.  The artifacts
+    //  of each dependency deleted are labeled as candidates, and only candidates left without any dependencies are
+    //  deleted; the label is then removed from the rest.  Candidates left by an interrupted purge are picked up
+    //  by the next.
+    private static final String REMOVE_SOURCES =
+        "MATCH ()-[r:DEPENDS_ON]->() " +
+        "WHERE any(s IN r.sources WHERE s IN $sources) AND any(s IN r.sources WHERE NOT s IN $sources) " +
+        "WITH r LIMIT $batch SET r.sources = [s IN r.sources WHERE NOT s IN $sources] RETURN count(r) AS deleted";
+    private static final String DELETE_SOURCES =
+        "MATCH (d)-[r:DEPENDS_ON]->(e) WHERE size(r.sources) > 0 AND all(s IN r.sources WHERE s IN $sources) " +
+        "WITH d, r, e LIMIT $batch SET d:PurgeCandidate, e:PurgeCandidate DELETE r RETURN count(r) AS deleted";
+    private static final String DELETE_ORPHANS =
+        "MATCH (n:Artifact:PurgeCandidate) WHERE NOT (n)--() WITH n LIMIT $batch DELETE n RETURN count(n) AS deleted";
+    private static final String CLEAR_CANDIDATES =
+        "MATCH (n:PurgeCandidate) WITH n LIMIT $batch REMOVE n:PurgeCandidate RETURN count(n) AS deleted";
+
+    //  Limited to labels
+    private static final String DELETE_LABELED_RELATIONSHIPS =
+        "MATCH (n)-[r]-() WHERE any(l IN labels(n) WHERE l IN $labels) " +
+        "WITH DISTINCT r LIMIT $batch DELETE r RETURN count(r) AS deleted";
+    private static final String DELETE_LABELED_NODES =
+        "MATCH (n) WHERE any(l IN labels(n) WHERE l IN $labels) " +
+        "WITH n LIMIT $batch DETACH DELETE n RETURN count(n) AS deleted";
+
+    private final SessionFactory sessionFactory;
+
+    /**
+     * Maximum number of relationships or nodes deleted in a single transaction
+     */
+    private final int batchSize;
+
+    /**
+     * When not empty, only dependencies from these sources are purged
+     */
+    private final Collection<String> sources;
+
+    /**
+     * When not empty, only nodes with these labels are purged
+     */
+    private final Collection<String> labels;
+
+    /**
+     * Constructor
+     * @param sessionFactory session factory for connecting to Neo4j database
+     * @param batchSize maximum number of relationships or nodes deleted in a single transaction
+     * @param sources when not empty, only dependencies from these sources are purged
+     * @param labels when not empty, only nodes with these labels are purged
+     */
+    public BatchedPurge(final SessionFactory sessionFactory,
+                        final int batchSize,
+                        final Collection<String> sources,
+                        final Collection<String> labels) {
+        this.sessionFactory = sessionFactory;
+        this.batchSize = batchSize;
+        this.sources = new ArrayList<>(sources);
+        this.labels = new ArrayList<>(labels);
+    }
+
+    /**
+     * Purge the database, reporting progress as it goes.
+     */
+    public void purge() {
+
+        Session session = sessionFactory.openSession();
+        Map<String, Object> params = new HashMap<>();
+        params.put("batch", batchSize);
+        params.put("sources", sources);
+        params.put("labels", labels);
+
+        if (sources.isEmpty() && labels.isEmpty()) {
+            run("relationships deleted", DELETE_RELATIONSHIPS, params, session);
+            run("nodes deleted", DELETE_NODES, params, session);
+            return;
+        }
+
+        if (!sources.isEmpty()) {
+            run("relationships updated for " + sources, REMOVE_SOURCES, params, session);
+            run("relationships deleted for " + sources, DELETE_SOURCES, params, session);
+            run("artifacts without dependencies deleted", DELETE_ORPHANS, params, session);
+            run("remaining artifacts cleared", CLEAR_CANDIDATES, params, session);
+        }
+
+        if (!labels.isEmpty()) {
+            run("relationships deleted for " + labels, DELETE_LABELED_RELATIONSHIPS, params, session);
+            run("nodes deleted for " + labels, DELETE_LABELED_NODES, params, session);
+        }
+    }
+
+    /**
+     * Repeat a statement, each execution in its own transaction, until it no longer affects anything.
+     * @param description what's being purged, for reporting progress
+     * @param cypher statement returning the number of relationships or nodes affected as "deleted"
+     * @param params statement parameters
+     * @param session Neo4J database session
+     * @return the total affected
+     */
+    private long run (final String description,
+                      final String cypher,
+                      final Map<String, Object> params,
+                      final Session session) {
+
+        long start = System.currentTimeMillis();
+        long total = 0;
+        long batches = 0;
+        long deleted;
+        do {
+            //  Outside of an explicit transaction, each query is committed on its own.
+            deleted = ((Number) session.query(cypher, params).iterator().next().get("deleted")).longValue();
+            total += deleted;
+
+            if (++batches % REPORT_BATCHES == 0) {
+                report(description, total, start);
+            }
+
+            //  Nothing carries over between batches.
+            session.clear();
+        } while (deleted > 0);
+
+        report(description, total, start);
+
+
+        return total;
+    }
+
+    private void report (final String description,
+                         final long total,
+                         final long start) {
+        long elapsed = Math.max(1, System.currentTimeMillis() - start);
+        System.out.println ("Purge: " + total + " " + description + " in " + elapsed + "ms, " + (total * 1000 / elapsed) + "/s.");
+    }
+}
@@ -0,0 +1,380 @@
+/*
+ * @author Scott C Sosna
+ */
+package dev.scottsosna.neo4j.gradle.sink;
+
+import dev.scottsosna.neo4j.gradle.parse.DependencyRecord;
+import dev.scottsosna.neo4j.gradle.relationship.DependsOn;
+import org.neo4j.ogm.exception.CypherException;
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+import org.neo4j.ogm.transaction.Transaction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Writes reports to Neo4J from multiple threads (or multiple loader JVMs) at the same time.  Popular artifacts are
+ * shared by nearly every report, so concurrent transactions constantly compete for the same nodes.  To keep that
+ * from turning into deadlocks:
+ * <ul>
+ *     <li>the artifacts of a report not already present are created up front in a short transaction, serialized
+ *         across all writers</li>
+ *     <li>each dependency transaction starts by locking every artifact it connects in (groupId, artifactId)
+ *         order, so popular dependees are never locked out of order by transactions writing different
+ *         dependants</li>
+ *     <li>transient errors, deadlocks included, are retried with a bounded, jittered backoff</li>
+ * </ul>
+ * Everything is written with MERGE, so a report can safely be written again.  Dependencies are written in batches,
+ * each in its own transaction, so a report failing after exhausting its retries may be partially loaded.
+ */
+public class ConcurrentNeo4jWriter {
+
+    //  Backoff between retries doubles from the base up to the maximum, with jitter so that transactions which
+    //  deadlocked with each other don't retry at the same moment.
+    private static final long BASE_BACKOFF_MILLIS = 25;
+    private static final long MAX_BACKOFF_MILLIS = 2000;
+
+    //  Every writer's artifact transaction updates this node first, which serializes artifact creation across
+    //  transactions so that concurrent MERGEs don't create duplicate artifacts.  The node is created before any
+    //  writer starts, and the uniqueness constraint on its name keeps writers in other loaders from creating a
+    //  second one should it be missing.
+    private static final String CREATE_LOCK =
+        "MERGE (l:LoaderLock {name: 'artifacts'})";
+    private static final String LOCK_ARTIFACTS =
+        "MERGE (l:LoaderLock {name: 'artifacts'}) SET l.acquired = timestamp()";
+
+    //  Most artifacts of a report were already created by earlier reports, which is checked without the lock so
+    //  that only reports introducing new artifacts are serialized.
+    private static final String MISSING_ARTIFACTS =
+        "UNWIND $artifacts AS row " +
+        "OPTIONAL MATCH (a:Artifact {groupId: row.groupId, artifactId: row.artifactId}) " +
+        "WITH row, a WHERE a IS NULL " +
+        "RETURN row.groupId AS groupId, row.artifactId AS artifactId";
+
+    //  Labels can't be parameters, so a FOREACH per artifact type found in the batch is appended.
+    private static final String MERGE_ARTIFACTS =
+        "UNWIND $artifacts AS row " +
+        "MERGE (a:Artifact {groupId: row.groupId, artifactId: row.artifactId}) " +
+        "ON CREATE SET a.name = row.artifactId, a.artifactType = row.artifactType ";
+    private static final String LABEL_ARTIFACTS =
+        "FOREACH (ignored IN CASE WHEN a.artifactType = '%s' THEN [1] ELSE [] END | SET a:`%s`) ";
+
+    //  Setting and removing a property takes the node's write lock, held until the transaction ends, without
+    //  changing anything.  The rows are sorted so every transaction locks in the same order; the MERGEs that
+    //  follow only need locks already held.
+    private static final String LOCK_ENDPOINTS =
+        "UNWIND $endpoints AS row " +
+        "MATCH (a:Artifact {groupId: row.groupId, artifactId: row.artifactId}) " +
+        "WITH a ORDER BY a.groupId, a.artifactId " +
+        "SET a._loaderLock = true REMOVE a._loaderLock";
+
+    private static final String MERGE_DEPENDENCIES =
+        "UNWIND $dependencies AS row " +
+        "MATCH (d:Artifact {groupId: row.dependantGroupId, artifactId: row.dependantArtifactId}) " +
+        "MATCH (e:Artifact {groupId: row.groupId, artifactId: row.artifactId}) " +
+        "MERGE (d)-[r:DEPENDS_ON {name: row.name}]->(e) " +
+        "ON CREATE SET r.specifiedVersion = row.specifiedVersion, r.resolvedVersion = row.resolvedVersion, " +
+        "              r.configurations = row.configurations, r.resolutionType = row.resolutionType, r.sources = row.sources " +
+        "ON MATCH SET r.configurations = r.configurations + [c IN row.configurations WHERE NOT c IN r.configurations], " +
+        "             r.resolutionType = r.resolutionType + [t IN row.resolutionType WHERE NOT t IN r.resolutionType], " +
+        "             r.sources = r.sources + [s IN row.sources WHERE NOT s IN r.sources]";
+
+    /**
+     * Session factory for connecting to Neo4j database, shared by all writers
+     */
+    private final SessionFactory sessionFactory;
+
+    /**
+     * Maximum number of dependencies written in a single transaction
+     */
+    private final int batchSize;
+
+    /**
+     * Maximum number of times a transaction is attempted before giving up
+     */
+    private final int maxAttempts;
+
+    //  Metrics across all writers
+    private final AtomicLong transactions = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong deadlocks = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    /**
+     * Constructor
+     * @param sessionFactory session factory for connecting to Neo4j database
+     * @param batchSize maximum number of dependencies written in a single transaction
+     * @param maxAttempts maximum number of times a transaction is attempted
+     */
+    public ConcurrentNeo4jWriter(final SessionFactory sessionFactory,
+                                 final int batchSize,
+                                 final int maxAttempts) {
+        this.sessionFactory = sessionFactory;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+
+        //  Every statement looks up artifacts by (groupId, artifactId), which has to be an index seek for
+        //  throughput to scale with the number of writers.
+        ArtifactIndexes.create(sessionFactory);
+        prepare();
+    }
+
+    /**
+     * Create the node serializing artifact creation, once and before any writer uses it.  Purging the database
+     * deletes it, so it's created again after each purge.
+     */
+    public void prepare() {
+        execute(Collections.singletonList(CREATE_LOCK), Collections.emptyMap());
+    }
+
+    /**
+     * Write the records of a single report, safe to call from multiple threads.
+     * @param records the records parsed from the report
+     * @param artifactType determines the type of a (non-project) artifact from its groupId
+     */
+    public void write (final List<DependencyRecord> records,
+                       final Function<String, String> artifactType) {
+
+        //  Sorted maps keep the artifacts and dependencies in (groupId, artifactId) order, which is the order
+        //  locks are acquired in.  Dependencies repeated within the report are combined before being written.
+        Map<String, Map<String, Object>> artifacts = new TreeMap<>();
+        Map<String, Map<String, Object>> dependencies = new TreeMap<>();
+
+        for (DependencyRecord one : records) {
+            String key = key(one.getGroupId(), one.getArtifactId());
+            if (!artifacts.containsKey(key)) {
+                Map<String, Object> row = new HashMap<>();
+                row.put("groupId", one.getGroupId());
+                row.put("artifactId", one.getArtifactId());
+                row.put("artifactType", one.isProject() ? GraphSink.ARTIFACT_TYPE_PROJECT : artifactType.apply(one.getGroupId()));
+                artifacts.put(key, row);
+            }
+
+            if (!one.isProject()) {
+                //  The relationship name identifies the versions, same as the relationships created through OGM.
+                String versions = new DependsOn(null, null, one.getResolvedVersion(), one.getSpecifiedVersion()).getName();
+                String name = versions != null ? versions : "";
+
+                Map<String, Object> row = dependencies.computeIfAbsent(key(one.getDependantGroupId(), one.getDependantArtifactId()) + key + '\u0000' + name, k -> {
+                    Map<String, Object> created = new HashMap<>();
+                    created.put("dependantGroupId", one.getDependantGroupId());
+                    created.put("dependantArtifactId", one.getDependantArtifactId());
+                    created.put("groupId", one.getGroupId());
+                    created.put("artifactId", one.getArtifactId());
+                    created.put("name", name);
+                    created.put("specifiedVersion", one.getSpecifiedVersion());
+                    created.put("resolvedVersion", one.getResolvedVersion());
+                    created.put("configurations", new TreeSet<String>());
+                    created.put("resolutionType", new TreeSet<String>());
+                    created.put("sources", new TreeSet<String>());
+                    return created;
+                });
+                one.getConfigurations().forEach(config -> add(row, "configurations", config.name()));
+                add(row, "resolutionType", one.getResolutionType().name());
+                add(row, "sources", one.getSource());
+            }
+        }
+
+        //  Short, serialized transaction creating any artifact not already present.  Another writer may create
+        //  the same artifacts in the meantime, which the MERGE under the lock allows for.
+        Set<String> missing = new HashSet<>();
+        for (Map<String, Object> one : execute(Collections.singletonList(MISSING_ARTIFACTS),
+                                               Collections.singletonMap("artifacts", new ArrayList<>(artifacts.values())))) {
+            missing.add(key((String) one.get("groupId"), (String) one.get("artifactId")));
+        }
+        artifacts.keySet().retainAll(missing);
+        if (!artifacts.isEmpty()) {
+            StringBuilder mergeArtifacts = new StringBuilder(MERGE_ARTIFACTS);
+            artifacts.values().stream().map(row -> (String) row.get("artifactType")).distinct().sorted()
+                     .forEach(type -> mergeArtifacts.append(String.format(LABEL_ARTIFACTS, type.replace("'", "\\'"), type.replace("`", "``"))));
+            execute(Arrays.asList(LOCK_ARTIFACTS, mergeArtifacts.toString()),
+                    Collections.singletonMap("artifacts", new ArrayList<>(artifacts.values())));
+        }
+
+        //  Dependencies are written in batches, still in order.
+        List<Map<String, Object>> batch = new ArrayList<>(batchSize);
+        for (Map<String, Object> one : dependencies.values()) {
+            batch.add(asParameters(one));
+            if (batch.size() == batchSize) {
+                writeDependencies(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            writeDependencies(batch);
+        }
+    }
+
+    /**
+     * Write a batch of dependencies in one transaction, first locking every artifact they connect in order.
+     * @param batch the dependency rows
+     */
+    private void writeDependencies (final List<Map<String, Object>> batch) {
+
+        Map<String, Map<String, Object>> endpoints = new TreeMap<>();
+        for (Map<String, Object> one : batch) {
+            endpoint(endpoints, (String) one.get("dependantGroupId"), (String) one.get("dependantArtifactId"));
+            endpoint(endpoints, (String) one.get("groupId"), (String) one.get("artifactId"));
+        }
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("endpoints", new ArrayList<>(endpoints.values()));
+        params.put("dependencies", batch);
+        execute(Arrays.asList(LOCK_ENDPOINTS, MERGE_DEPENDENCIES), params);
+    }
+
+    private static void endpoint (final Map<String, Map<String, Object>> endpoints,
+                                  final String groupId,
+                                  final String artifactId) {
+        endpoints.computeIfAbsent(key(groupId, artifactId), k -> {
+            Map<String, Object> row = new HashMap<>();
+            row.put("groupId", groupId);
+            row.put("artifactId", artifactId);
+            return row;
+        });
+    }
+
+    /**
+     * @return the number of transactions committed
+     */
+    public long getTransactions() {
+        return transactions.get();
+    }
+
+    /**
+     * @return the number of transactions retried after a transient error
+     */
+    public long getRetries() {
+        return retries.get();
+    }
+
+    /**
+     * @return the number of retries caused by deadlocks
+     */
+    public long getDeadlocks() {
+        return deadlocks.get();
+    }
+
+    /**
+     * @return the number of transactions that failed, even after retrying
+     */
+    public long getFailures() {
+        return failures.get();
+    }
+
+    /**
+     * Run the statements in a single transaction, retrying transient errors.
+     * @param statements Cypher statements executed in order
+     * @param params parameters for all statements
+     * @return the rows returned by the last statement
+     */
+    private List<Map<String, Object>> execute (final List<String> statements,
+                                               final Map<String, Object> params) {
+
+        for (int attempt = 1; ; attempt++) {
+            Session session = sessionFactory.openSession();
+            try (Transaction transaction = session.beginTransaction()) {
+                List<Map<String, Object>> rows = new ArrayList<>();
+                for (String one : statements) {
+                    rows.clear();
+                    session.query(one, params).forEach(rows::add);
+                }
+
+                transaction.commit();
+                transactions.incrementAndGet();
+                return rows;
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts || !isTransient(e)) {
+                    failures.incrementAndGet();
+                    throw e;
+                }
+
+                retries.incrementAndGet();
+                if (isDeadlock(e)) {
+                    deadlocks.incrementAndGet();
+                }
+
+                backoff(attempt);
+            }
+        }
+    }
+
+    /**
+     * Sleep before retrying, doubling with each attempt up to the maximum.  Equal jitter: half the backoff is
+     * fixed, the other half random.
+     */
+    private void backoff (final int attempt) {
+        long backoff = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(attempt - 1, 16));
+        try {
+            Thread.sleep(backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Transient errors (deadlocks, lock timeouts, leader switches) succeed when retried.  The Bolt driver is only
+     * a runtime dependency, so its exceptions are recognized by name.
+     */
+    static boolean isTransient (final Throwable e) {
+        for (Throwable one = e; one != null; one = one.getCause()) {
+            if (one instanceof CypherException && ((CypherException) one).getCode() != null &&
+                ((CypherException) one).getCode().startsWith("Neo.TransientError")) {
+                return true;
+            }
+            if (one.getClass().getSimpleName().contains("Transient") || isDeadlock(one)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean isDeadlock (final Throwable e) {
+        for (Throwable one = e; one != null; one = one.getCause()) {
+            if (String.valueOf(one.getMessage()).contains("DeadlockDetected") ||
+                (one instanceof CypherException && String.valueOf(((CypherException) one).getCode()).contains("DeadlockDetected"))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return the row with its sets converted to lists, as expected by the driver
+     */
+    private static Map<String, Object> asParameters (final Map<String, Object> row) {
+        Map<String, Object> params = new HashMap<>(row);
+        params.replaceAll((k, v) -> v instanceof Collection ? new ArrayList<>((Collection<?>) v) : v);
+        return params;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void add (final Map<String, Object> row,
+                             final String property,
+                             final String value) {
+        ((Collection<String>) row.get(property)).add(value);
+    }
+
+    /**
+     * @return key sorting artifacts by group and then artifact id
+     */
+    private static String key (final String groupId,
+                               final String artifactId) {
+        return groupId + '\u0000' + artifactId + '\u0000';
+    }
+}
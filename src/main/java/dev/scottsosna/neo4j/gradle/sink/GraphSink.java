@@ -0,0 +1,82 @@
+/*
+ * @author Scott C Sosna
+ */
+package dev.scottsosna.neo4j.gradle.sink;
+
+import dev.scottsosna.neo4j.gradle.node.Artifact;
+import dev.scottsosna.neo4j.gradle.relationship.DependsOn;
+
+/**
+ * Destination for the artifacts and dependencies found while loading Gradle dependency reports.  Each report
+ * is loaded between a call to {@link #begin()} and either {@link #commit()} or {@link #rollback()}.
+ */
+public interface GraphSink {
+
+    //  Artifact types the sinks need to know about to promote projects
+    String ARTIFACT_TYPE_INTERNAL = "INTERNAL";
+    String ARTIFACT_TYPE_PROJECT = "PROJECT";
+
+    /**
+     * Remove everything previously loaded
+     */
+    void purge();
+
+    /**
+     * Start loading a single report
+     */
+    void begin();
+
+    /**
+     * Make everything loaded since {@link #begin()} permanent
+     */
+    void commit();
+
+    /**
+     * Discard everything loaded since {@link #begin()}
+     */
+    void rollback();
+
+    /**
+     * Find an existing artifact or create a new one.  An individual artifact may be referenced multiple times
+     * in a dependency tree, so only needs to be created once but then reused for multiple dependencies
+     * @param groupId the group id for the artifact
+     * @param artifactId the artifact id for the artifact
+     * @param artifactType the type assigned to the artifact if created
+     * @return the artifact either found or created
+     */
+    Artifact findOrCreateArtifact (String groupId, String artifactId, String artifactType);
+
+    /**
+     * Gradle only provides the name of a project, so projects are loaded with a placeholder group id.  Once
+     * everything is loaded, each project is merged with the internal artifact of the same artifact id, if any,
+     * in a single pass.
+     * @return the number of projects merged with an internal artifact
+     */
+    int reconcileProjects();
+
+    /**
+     * Record that loaded data was committed, so that readers in other processes know to discard cached results
+     */
+    void markLoaded();
+
+    /**
+     * Either find an existing dependency or create a new one.
+     * @param dependee the artifact that provides the dependency
+     * @param dependant the artifact that requires a dependency
+     * @param resolvedVersion the version resolved, when different from the specified
+     * @param specifiedVersion the specified version of the dependent
+     * @return the dependency either found or created
+     */
+    DependsOn findOrCreateDependsOn (Artifact dependee, Artifact dependant, String resolvedVersion, String specifiedVersion);
+
+    /**
+     * Save changes made to a dependency
+     * @param dependsOn the dependency
+     */
+    void save (DependsOn dependsOn);
+
+    /**
+     * Release any resources held by the sink
+     */
+    void close();
+}
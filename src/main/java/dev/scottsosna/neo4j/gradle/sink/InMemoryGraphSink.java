@@ -0,0 +1,241 @@
+/*
+ * @author Scott C Sosna
+ */
+package dev.scottsosna.neo4j.gradle.sink;
+
+import dev.scottsosna.neo4j.gradle.node.Artifact;
+import dev.scottsosna.neo4j.gradle.parse.DependencyRecord;
+import dev.scottsosna.neo4j.gradle.relationship.DependsOn;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sink that keeps the artifacts and dependencies in memory, for testing and benchmarking the loader without a
+ * Neo4J database.  Rolling back discards artifacts and dependencies created since the report began, but not
+ * changes made to ones that previously existed.
+ */
+public class InMemoryGraphSink implements GraphSink {
+
+    /**
+     * Artifacts keyed by group/artifact id
+     */
+    private final Map<String, Artifact> artifacts = new LinkedHashMap<>();
+
+    /**
+     * Dependencies keyed by dependant, dependee and versions
+     */
+    private final Map<String, DependsOn> dependencies = new LinkedHashMap<>();
+
+    /**
+     * Keys created since the current report began, removed on rollback
+     */
+    private final List<String> createdArtifacts = new ArrayList<>();
+    private final List<String> createdDependencies = new ArrayList<>();
+
+    private long nextId;
+
+    /**
+     * Number of times loaded data was committed
+     */
+    private long loads;
+
+    @Override
+    public void purge() {
+        artifacts.clear();
+        dependencies.clear();
+    }
+
+    @Override
+    public void begin() {
+        createdArtifacts.clear();
+        createdDependencies.clear();
+    }
+
+    @Override
+    public void commit() {
+        createdArtifacts.clear();
+        createdDependencies.clear();
+    }
+
+    @Override
+    public void rollback() {
+        createdArtifacts.forEach(artifacts::remove);
+        createdDependencies.forEach(dependencies::remove);
+        begin();
+    }
+
+    @Override
+    public Artifact findOrCreateArtifact (final String groupId,
+                                          final String artifactId,
+                                          final String artifactType) {
+
+        Artifact toReturn = artifacts.get(key(groupId, artifactId));
+        if (toReturn == null) {
+            toReturn = new Artifact(groupId, artifactId, artifactType);
+            toReturn.setId(nextId++);
+            artifacts.put(key(groupId, artifactId), toReturn);
+            createdArtifacts.add(key(groupId, artifactId));
+        }
+
+
+        return toReturn;
+    }
+
+    @Override
+    public int reconcileProjects() {
+
+        //  Same as the database, each project is merged into the project it was previously reconciled with or else
+        //  the first internal artifact with the same artifact id.  Both the candidates and the dependencies of
+        //  each project are indexed once up front, rather than searched for every project.
+        Map<String, Artifact> internals = new HashMap<>();
+        for (Artifact one : artifacts.values()) {
+            if (!DependencyRecord.PROJECT_GROUP_ID.equals(one.getGroupId()) &&
+                (one.getLabels().contains(ARTIFACT_TYPE_INTERNAL) || one.getLabels().contains(ARTIFACT_TYPE_PROJECT))) {
+                Artifact existing = internals.get(one.getArtifactId());
+                if (existing == null || (!existing.getLabels().contains(ARTIFACT_TYPE_PROJECT) && one.getLabels().contains(ARTIFACT_TYPE_PROJECT))) {
+                    internals.put(one.getArtifactId(), one);
+                }
+            }
+        }
+
+        Map<Long, List<String>> projectDependencies = new HashMap<>();
+        dependencies.forEach((key, one) -> {
+            indexProjectDependency(projectDependencies, one.getDependant(), key);
+            indexProjectDependency(projectDependencies, one.getDependee(), key);
+        });
+
+        int reconciled = 0;
+        for (Artifact project : new ArrayList<>(artifacts.values())) {
+            if (!DependencyRecord.PROJECT_GROUP_ID.equals(project.getGroupId())) {
+                continue;
+            }
+
+            Artifact internal = internals.get(project.getArtifactId());
+            if (internal == null) {
+                continue;
+            }
+
+            //  Move the project's dependencies to the internal artifact, combining with any it already has.  A
+            //  dependency between two projects already moved by the other project is no longer there.
+            for (String key : projectDependencies.getOrDefault(project.getId(), Collections.emptyList())) {
+                DependsOn one = dependencies.remove(key);
+                if (one == null) {
+                    continue;
+                }
+
+                Artifact dependant = one.getDependant() == project ? internal : one.getDependant();
+                Artifact dependee = one.getDependee() == project ? internal : one.getDependee();
+                DependsOn moved = findOrCreateDependsOn(dependee, dependant, one.getResolvedVersion(), one.getSpecifiedVersion());
+                one.getConfigurations().forEach(moved::addConfiguration);
+                one.getResolutionType().forEach(moved::addResolutionType);
+                one.getSources().forEach(moved::addSource);
+
+                //  Still to be moved when the project at the other end is reconciled.
+                String movedKey = key(dependant, dependee, one.getSpecifiedVersion(), one.getResolvedVersion());
+                indexProjectDependency(projectDependencies, dependant, movedKey);
+                indexProjectDependency(projectDependencies, dependee, movedKey);
+            }
+
+            artifacts.remove(key(project.getGroupId(), project.getArtifactId()));
+            internal.getLabels().remove(ARTIFACT_TYPE_INTERNAL);
+            internal.getLabels().add(ARTIFACT_TYPE_PROJECT);
+            internal.setArtifactType(ARTIFACT_TYPE_PROJECT);
+            reconciled++;
+        }
+
+        commit();
+
+
+        return reconciled;
+    }
+
+    /**
+     * Index a dependency under its endpoint, when the endpoint is a project still to be reconciled
+     */
+    private static void indexProjectDependency (final Map<Long, List<String>> projectDependencies,
+                                                final Artifact endpoint,
+                                                final String key) {
+        if (DependencyRecord.PROJECT_GROUP_ID.equals(endpoint.getGroupId())) {
+            projectDependencies.computeIfAbsent(endpoint.getId(), k -> new ArrayList<>()).add(key);
+        }
+    }
+
+    @Override
+    public void markLoaded() {
+        loads++;
+    }
+
+    @Override
+    public DependsOn findOrCreateDependsOn (final Artifact dependee,
+                                            final Artifact dependant,
+                                            final String resolvedVersion,
+                                            final String specifiedVersion) {
+
+        String key = key(dependant, dependee, specifiedVersion, resolvedVersion);
+        DependsOn toReturn = dependencies.get(key);
+        if (toReturn == null) {
+            toReturn = new DependsOn(dependee, dependant, resolvedVersion, specifiedVersion);
+            toReturn.setId(nextId++);
+            dependencies.put(key, toReturn);
+            createdDependencies.add(key);
+        }
+
+
+        return toReturn;
+    }
+
+    @Override
+    public void save (final DependsOn dependsOn) {
+        //  Nothing to do, the dependency is already held in memory.
+    }
+
+    @Override
+    public void close() {
+        //  Nothing to release.
+    }
+
+    /**
+     * @return all artifacts loaded
+     */
+    public Collection<Artifact> getArtifacts() {
+        return Collections.unmodifiableCollection(artifacts.values());
+    }
+
+    /**
+     * @return all dependencies loaded
+     */
+    public Collection<DependsOn> getDependencies() {
+        return Collections.unmodifiableCollection(dependencies.values());
+    }
+
+    /**
+     * @return the number of times loaded data was committed
+     */
+    public long getLoads() {
+        return loads;
+    }
+
+    /**
+     * @return key identifying an artifact by group and artifact id
+     */
+    private static String key (final String groupId,
+                               final String artifactId) {
+        return groupId + ":" + artifactId;
+    }
+
+    /**
+     * @return key identifying a dependency by dependant, dependee and versions
+     */
+    private static String key (final Artifact dependant,
+                               final Artifact dependee,
+                               final String specifiedVersion,
+                               final String resolvedVersion) {
+        return dependant.getId() + ">" + dependee.getId() + ":" + specifiedVersion + ":" + resolvedVersion;
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ * @author Scott C Sosna
+ */
+package dev.scottsosna.neo4j.gradle.sink;
+
+import dev.scottsosna.neo4j.gradle.node.Artifact;
+import dev.scottsosna.neo4j.gradle.parse.DependencyRecord;
+import dev.scottsosna.neo4j.gradle.relationship.DependsOn;
+import org.neo4j.ogm.cypher.BooleanOperator;
+import org.neo4j.ogm.cypher.ComparisonOperator;
+import org.neo4j.ogm.cypher.Filter;
+import org.neo4j.ogm.cypher.Filters;
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+import org.neo4j.ogm.transaction.Transaction;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Sink that loads the artifacts and dependencies into a Neo4J database through OGM.
+ */
+public class Neo4jGraphSink implements GraphSink {
+
+    /**
+     * Gradle only provides the name of a project, so each project node is merged with the internal artifact of the
+     * same artifact id, if any.  The project's dependencies are moved to the internal artifact, combined with any
+     * the artifact already has for the same versions, before the project node is deleted and the internal artifact
+     * becomes the project.  A project reloaded after being reconciled (e.g. after a purge limited to its sources)
+     * is merged into the project it was reconciled with previously, which is preferred over an internal artifact.
+     */
+    private static final String RECONCILE_PROJECTS =
+        "MATCH (p:Artifact:PROJECT {groupId: $projectGroupId}) " +
+        "MATCH (a:Artifact {artifactId: p.artifactId}) " +
+        "WHERE (a:INTERNAL OR a:PROJECT) AND a.groupId <> $projectGroupId " +
+        "WITH p, a ORDER BY CASE WHEN a:PROJECT THEN 0 ELSE 1 END " +
+        "WITH p, head(collect(a)) AS a " +
+        "OPTIONAL MATCH (p)-[out:DEPENDS_ON]->(dependee) " +
+        "WITH p, a, [x IN collect({rel: out, node: dependee}) WHERE x.rel IS NOT NULL] AS outs " +
+        "OPTIONAL MATCH (dependant)-[in:DEPENDS_ON]->(p) " +
+        "WITH p, a, outs, [x IN collect({rel: in, node: dependant}) WHERE x.rel IS NOT NULL] AS ins " +
+        "FOREACH (o IN outs | FOREACH (dependee IN [o.node] | " +
+        "  MERGE (a)-[r:DEPENDS_ON {name: coalesce(o.rel.name, '')}]->(dependee) " +
+        "  ON CREATE SET r = properties(o.rel) " +
+        "  ON MATCH SET r.configurations = r.configurations + [c IN o.rel.configurations WHERE NOT c IN r.configurations], " +
+        "               r.resolutionType = r.resolutionType + [t IN o.rel.resolutionType WHERE NOT t IN r.resolutionType], " +
+        "               r.sources = r.sources + [s IN o.rel.sources WHERE NOT s IN r.sources])) " +
+        "FOREACH (i IN ins | FOREACH (dependant IN [i.node] | " +
+        "  MERGE (dependant)-[r:DEPENDS_ON {name: coalesce(i.rel.name, '')}]->(a) " +
+        "  ON CREATE SET r = properties(i.rel) " +
+        "  ON MATCH SET r.configurations = r.configurations + [c IN i.rel.configurations WHERE NOT c IN r.configurations], " +
+        "               r.resolutionType = r.resolutionType + [t IN i.rel.resolutionType WHERE NOT t IN r.resolutionType], " +
+        "               r.sources = r.sources + [s IN i.rel.sources WHERE NOT s IN r.sources])) " +
+        "SET a:PROJECT, a.artifactType = $projectType " +
+        "REMOVE a:INTERNAL " +
+        "DETACH DELETE p " +
+        "RETURN count(a) AS reconciled";
+
+    /**
+     * Readers compare the marker's version with the version their cached results were read at, so every commit
+     * changes it to a value it's never had before.  A purge deletes the marker, which readers also see as a change.
+     */
+    private static final String MARK_LOADED =
+        "MERGE (m:LoadMarker {name: 'load'}) SET m.version = randomUUID(), m.committed = timestamp()";
+
+    //  The marker is created before anything is loaded, and again after each purge, so that marking a commit
+    //  only updates it.  The uniqueness constraint on its name keeps other loaders from creating a second one.
+    private static final String CREATE_MARKER =
+        "MERGE (m:LoadMarker {name: 'load'}) ON CREATE SET m.version = randomUUID(), m.committed = timestamp()";
+
+    //  Marking a commit competes with every other loader marking theirs, so transient errors are retried.
+    private static final int MARK_ATTEMPTS = 5;
+    private static final long MARK_BACKOFF_MILLIS = 25;
+
+    /**
+     * Session factory for connecting to Neo4j database
+     */
+    private final SessionFactory sessionFactory;
+
+    /**
+     * When set, the database is purged in batches rather than in a single transaction
+     */
+    private final BatchedPurge batchedPurge;
+
+    /**
+     * Session and transaction of the report currently being loaded
+     */
+    private Session session;
+    private Transaction transaction;
+
+    /**
+     * Constructor
+     * @param sessionFactory session factory for connecting to Neo4j database
+     * @param batchedPurge purges the database in batches, null to purge in a single transaction
+     */
+    public Neo4jGraphSink(final SessionFactory sessionFactory,
+                          final BatchedPurge batchedPurge) {
+        this.sessionFactory = sessionFactory;
+        this.batchedPurge = batchedPurge;
+
+        ArtifactIndexes.create(sessionFactory);
+        mark(CREATE_MARKER);
+    }
+
+    @Override
+    public void purge() {
+        if (batchedPurge != null) {
+            batchedPurge.purge();
+        } else {
+            Session session = sessionFactory.openSession();
+            session.purgeDatabase();
+        }
+
+        mark(CREATE_MARKER);
+    }
+
+    @Override
+    public void begin() {
+        //  Open new Neo4J database session and process each report in its own transaction that can be rolled
+        //  back, if necessary.
+        session = sessionFactory.openSession();
+        transaction = session.beginTransaction();
+    }
+
+    @Override
+    public void commit() {
+        transaction.commit();
+    }
+
+    @Override
+    public void rollback() {
+        transaction.rollback();
+    }
+
+    @Override
+    public int reconcileProjects() {
+
+        Session session = sessionFactory.openSession();
+        Transaction transaction = session.beginTransaction();
+
+        try {
+            Map<String, Object> params = new HashMap<>();
+            params.put("projectGroupId", DependencyRecord.PROJECT_GROUP_ID);
+            params.put("projectType", ARTIFACT_TYPE_PROJECT);
+            Number reconciled = (Number) session.query(RECONCILE_PROJECTS, params).iterator().next().get("reconciled");
+
+            transaction.commit();
+
+
+            return reconciled.intValue();
+        } catch (RuntimeException e) {
+            transaction.rollback();
+            throw e;
+        }
+    }
+
+    @Override
+    public void markLoaded() {
+        mark(MARK_LOADED);
+    }
+
+    /**
+     * Update the load marker outside of an explicit transaction, so committed on its own and only locking the
+     * marker briefly, retrying transient errors.
+     * @param cypher statement updating the marker
+     */
+    private void mark (final String cypher) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                sessionFactory.openSession().query(cypher, Collections.emptyMap());
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= MARK_ATTEMPTS || !ConcurrentNeo4jWriter.isTransient(e)) {
+                    throw e;
+                }
+            }
+
+            try {
+                Thread.sleep(MARK_BACKOFF_MILLIS * attempt);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void save (final DependsOn dependsOn) {
+        session.save(dependsOn);
+    }
+
+    @Override
+    public void close() {
+        //  Gotta close the session factory to shutdown Neo4J threads, allowing clean program exit.
+        sessionFactory.close();
+    }
+
+    /**
+     * Attempt to find an artifact based on group/artifact Id.
+     * @param groupId the group id for the artifact
+     * @param artifactId the artifact id for the artifact
+     * @return the artifacts found, if any
+     */
+    private Collection<Artifact> findArtifact (final String groupId,
+                                               final String artifactId) {
+
+        //  Create filter based on artifact's groupId and artifactId (which is also stored as name).
+        Filters composite = new Filters();
+        Filter filter = new Filter("artifactId", ComparisonOperator.EQUALS, artifactId);
+        composite.add(filter);
+
+        filter = new Filter("groupId", ComparisonOperator.EQUALS, groupId);
+        filter.setBooleanOperator(BooleanOperator.AND);
+        composite.add(filter);
+
+
+        //  Execute query and return collection to caller.
+        return session.loadAll(Artifact.class, composite);
+    }
+
+
+    /**
+     * Find an existing artifact in the Neo4j database or create a new one.  An individual artifact may
+     * be referenced multiple times in a dependency tree, so only needs to be created once but then
+     * reused for multiple dependencies
+     * @param groupId the group id for the artifact
+     * @param artifactId the artifact id for the artifact
+     * @param artifactType the type assigned to the artifact if created
+     * @return the artifact either found or created
+     */
+    @Override
+    public Artifact findOrCreateArtifact (final String groupId,
+                                          final String artifactId,
+                                          final String artifactType) {
+
+        Artifact toReturn;
+
+        //  Attempt to find the artifact by group and artifact id.
+        Collection<Artifact> artifacts = findArtifact(groupId, artifactId);
+        if (!artifacts.isEmpty()) {
+            //  Something found, just use the first in the stream (there should only be 1)
+            toReturn = artifacts.stream().findFirst().get();
+        } else {
+            //  Need to create a new artifact node, immediately save to Neo4J.  Projects are created with a
+            //  placeholder group id and matched to their internal artifact by reconcileProjects().
+            toReturn = new Artifact(groupId, artifactId, artifactType);
+            session.save(toReturn);
+        }
+
+
+        return toReturn;
+    }
+
+
+    /**
+     * Find an existing dependency based on the dependee/dependant artifact and the version of the dependency.
+     * @param dependee the artifact that provides the dependency
+     * @param dependent the artifact that requires a dependency
+     * @param resolvedVersion the version resolved, when different from the specified
+     * @param specifiedVersion the specified version of the dependent
+     * @return 0 or more dependency relationships, really should only get 1 if something/anything found
+     */
+    private Iterable<DependsOn> findDependsOn (final Artifact dependee,
+                                               final Artifact dependent,
+                                               final String resolvedVersion,
+                                               final String specifiedVersion) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("dgroup", dependent.getGroupId());
+        params.put("dname", dependent.getName());
+        params.put("dogroup", dependee.getGroupId());
+        params.put("doname", dependee.getName());
+        params.put ("specifiedVersion", specifiedVersion);
+        params.put ("resolvedVersion", resolvedVersion);
+
+        /**
+         * There are three possibilities:
+         * 1) the build.gradle version specified is ultimately what is the dependency
+         * 2) the build.gradle version specified is resolved to a different version by gradle
+         * 3) no version specified but is resolved to a specific version by gradle.
+         */
+        String cypher;
+        if (resolvedVersion == null) {
+            cypher = "MATCH (d:Artifact {groupId: $dgroup, name: $dname})-[dpo:DEPENDS_ON {specifiedVersion: $specifiedVersion}]->(do:Artifact {groupId: $dogroup, name: $doname}) RETURN dpo";
+        } else if (specifiedVersion == null) {
+            cypher = "MATCH (d:Artifact {groupId: $dgroup, name: $dname})-[dpo:DEPENDS_ON {resolvedVersion: $resolvedVersion}]->(do:Artifact {groupId: $dogroup, name: $doname}) RETURN dpo";
+        } else {
+            cypher = "MATCH (d:Artifact {groupId: $dgroup, name: $dname})-[dpo:DEPENDS_ON {specifiedVersion: $specifiedVersion, resolvedVersion: $resolvedVersion}]->(do:Artifact {groupId: $dogroup, name: $doname}) RETURN dpo";
+        }
+
+        return session.query (DependsOn.class, cypher, params);
+    }
+
+
+    /**
+     * Either find an existing dependency or create a new one.
+     * @param dependee the artifact that provides the dependency
+     * @param dependent the artifact that requires a dependency
+     * @param resolvedVersion the version resolved, when different from the specified
+     * @param specifiedVersion the specified version of the dependent
+     * @return 0 or more dependency relationships, really should only get 1 if something/anything found
+     */
+    @Override
+    public DependsOn findOrCreateDependsOn (final Artifact dependee,
+                                            final Artifact dependent,
+                                            final String resolvedVersion,
+                                            final String specifiedVersion) {
+        DependsOn toReturn;
+        Iterator<DependsOn> it = findDependsOn (dependee, dependent, resolvedVersion, specifiedVersion).iterator();
+        if (it.hasNext()) {
+            toReturn = it.next();
+        } else {
+            toReturn = new DependsOn (dependee, dependent, resolvedVersion, specifiedVersion);
+            session.save (toReturn);
+        }
+
+
+        return toReturn;
+    }
+}
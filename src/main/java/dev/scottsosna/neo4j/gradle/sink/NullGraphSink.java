@@ -0,0 +1,54 @@
+/*
+ * @author Scott C Sosna
+ */
+package dev.scottsosna.neo4j.gradle.sink;
+
+import dev.scottsosna.neo4j.gradle.node.Artifact;
+import dev.scottsosna.neo4j.gradle.relationship.DependsOn;
+
+/**
+ * Sink that discards everything, for measuring the throughput of parsing alone.
+ */
+public class NullGraphSink implements GraphSink {
+
+    @Override
+    public void purge() {}
+
+    @Override
+    public void begin() {}
+
+    @Override
+    public void commit() {}
+
+    @Override
+    public void rollback() {}
+
+    @Override
+    public Artifact findOrCreateArtifact (final String groupId,
+                                          final String artifactId,
+                                          final String artifactType) {
+        return new Artifact(groupId, artifactId, artifactType);
+    }
+
+    @Override
+    public int reconcileProjects() {
+        return 0;
+    }
+
+    @Override
+    public void markLoaded() {}
+
+    @Override
+    public DependsOn findOrCreateDependsOn (final Artifact dependee,
+                                            final Artifact dependant,
+                                            final String resolvedVersion,
+                                            final String specifiedVersion) {
+        return new DependsOn(dependee, dependant, resolvedVersion, specifiedVersion);
+    }
+
+    @Override
+    public void save (final DependsOn dependsOn) {}
+
+    @Override
+    public void close() {}
+}
@@ -0,0 +1,238 @@
+/*
+ * @author Scott C Sosna
+ */
+package dev.scottsosna.neo4j.gradle.snapshot;
+
+import dev.scottsosna.neo4j.gradle.parse.DependencyRecord;
+import dev.scottsosna.neo4j.gradle.relationship.ConfigurationType;
+import dev.scottsosna.neo4j.gradle.relationship.ResolutionType;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import static dev.scottsosna.neo4j.gradle.snapshot.SnapshotWriter.*;
+
+/**
+ * Reads a binary snapshot created by {@link SnapshotWriter}.  The file is memory-mapped, so replaying a
+ * snapshot costs little more than decoding the fixed-width records.
+ */
+public class SnapshotReader implements Closeable {
+
+    //  Largest region mapped at one time when verifying the checksum.
+    private static final int MAPPED_WINDOW = 1 << 30;
+
+    private final FileChannel channel;
+
+    /**
+     * Strings referenced by the records, decoded once so every record shares the same instances.
+     */
+    private final String[] strings;
+
+    /**
+     * Name index, first record and record count for each report.
+     */
+    private final long[][] reports;
+
+    /**
+     * File offset of the first record.
+     */
+    private final long recordsOffset;
+
+    /**
+     * Constructor, opens and validates the snapshot
+     * @param file the snapshot file
+     * @throws IOException thrown if the file can't be read, isn't a snapshot, is a different version or is corrupt.
+     */
+    public SnapshotReader(final Path file) throws IOException {
+
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+
+        try {
+            long size = channel.size();
+            if (size < HEADER_WIDTH + Long.BYTES) {
+                throw new IOException(file + " is not a dependency snapshot.");
+            }
+
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, Integer.MAX_VALUE));
+            if (header.getInt() != MAGIC) {
+                throw new IOException(file + " is not a dependency snapshot.");
+            }
+
+            short version = header.getShort();
+            if (version != VERSION) {
+                throw new IOException(file + " is snapshot version " + version + ", expected " + VERSION + ".");
+            }
+
+            verifyChecksum(file, size);
+
+            header.getShort();
+            strings = new String[header.getInt()];
+            reports = new long[header.getInt()][];
+            long recordCount = header.getLong();
+
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[header.getInt()];
+                header.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            for (int i = 0; i < reports.length; i++) {
+                reports[i] = new long[] {header.getInt(), header.getLong(), header.getInt()};
+            }
+
+            recordsOffset = header.position();
+            if (recordsOffset + recordCount * RECORD_WIDTH + Long.BYTES != size) {
+                throw new IOException(file + " is truncated or corrupt.");
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Determine whether a file is a snapshot by looking for the magic number at its start.
+     * @param file the file to check
+     * @return true if the file appears to be a snapshot
+     */
+    public static boolean isSnapshot (final File file) {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file.toPath()))) {
+            return in.readInt() == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the number of reports in the snapshot
+     */
+    public int getReportCount() {
+        return reports.length;
+    }
+
+    /**
+     * @param report index of the report
+     * @return the name the report was added with
+     */
+    public String getReportName (final int report) {
+        return strings[(int) reports[report][0]];
+    }
+
+    /**
+     * Decode the records for a single report
+     * @param report index of the report
+     * @return the records, in the order they were parsed
+     * @throws IOException thrown if the records can't be mapped or reference unknown values
+     */
+    public List<DependencyRecord> readReport (final int report) throws IOException {
+
+        int count = (int) reports[report][2];
+        List<DependencyRecord> records = new ArrayList<>(count);
+        if (count == 0) {
+            return records;
+        }
+
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                                              recordsOffset + reports[report][1] * RECORD_WIDTH,
+                                              (long) count * RECORD_WIDTH);
+
+        //  Records with the same configurations share the same set.
+        ConfigurationType[] configurations = ConfigurationType.values();
+        List<Set<ConfigurationType>> configurationSets = new ArrayList<>(Collections.nCopies(1 << configurations.length, null));
+        ResolutionType[] resolutionTypes = ResolutionType.values();
+        for (int i = 0; i < count; i++) {
+            byte type = buffer.get();
+            int configuration = buffer.get() & 0xFF;
+            int resolutionType = buffer.get();
+            buffer.get();
+            if (configuration == 0 || configuration >= configurationSets.size() || resolutionType < 0 || resolutionType >= resolutionTypes.length) {
+                throw new IOException("Snapshot record " + (reports[report][1] + i) + " is corrupt.");
+            }
+
+            String source = string(buffer.getInt());
+            String dependantGroupId = string(buffer.getInt());
+            String dependantArtifactId = string(buffer.getInt());
+            String groupId = string(buffer.getInt());
+            String artifactId = string(buffer.getInt());
+            String specifiedVersion = string(buffer.getInt());
+            String resolvedVersion = string(buffer.getInt());
+
+            records.add(new DependencyRecord(type == TYPE_PROJECT, groupId, artifactId, dependantGroupId, dependantArtifactId,
+                                             specifiedVersion, resolvedVersion, configurationSet(configurationSets, configuration),
+                                             resolutionTypes[resolutionType], source));
+        }
+
+
+        return records;
+    }
+
+    /**
+     * @return the configurations whose bits are set, created the first time the combination is read
+     */
+    private static Set<ConfigurationType> configurationSet (final List<Set<ConfigurationType>> configurationSets,
+                                                            final int bits) {
+        Set<ConfigurationType> toReturn = configurationSets.get(bits);
+        if (toReturn == null) {
+            toReturn = EnumSet.noneOf(ConfigurationType.class);
+            for (ConfigurationType one : ConfigurationType.values()) {
+                if ((bits & 1 << one.ordinal()) != 0) {
+                    toReturn.add(one);
+                }
+            }
+            configurationSets.set(bits, toReturn);
+        }
+
+
+        return toReturn;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Compare the checksum in the trailer against the contents of the file.
+     */
+    private void verifyChecksum (final Path file,
+                                 final long size) throws IOException {
+
+        CRC32 crc = new CRC32();
+        long checked = size - Long.BYTES;
+        for (long position = 0; position < checked; position += MAPPED_WINDOW) {
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAPPED_WINDOW, checked - position)));
+        }
+
+        if (channel.map(FileChannel.MapMode.READ_ONLY, checked, Long.BYTES).getLong() != crc.getValue()) {
+            throw new IOException(file + " failed checksum verification.");
+        }
+    }
+
+    /**
+     * @return the dictionary string for an index, null for NO_STRING
+     */
+    private String string (final int index) throws IOException {
+        if (index == NO_STRING) {
+            return null;
+        }
+        if (index < 0 || index >= strings.length) {
+            throw new IOException("Snapshot string index " + index + " is out of range.");
+        }
+
+        return strings[index];
+    }
+}
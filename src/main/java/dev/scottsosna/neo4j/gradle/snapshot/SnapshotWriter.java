@@ -0,0 +1,211 @@
+/*
+ * @author Scott C Sosna
+ */
+package dev.scottsosna.neo4j.gradle.snapshot;
+
+import dev.scottsosna.neo4j.gradle.parse.DependencyRecord;
+import dev.scottsosna.neo4j.gradle.relationship.ConfigurationType;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Writes parsed dependency reports to a binary snapshot that can later be replayed into Neo4J without parsing
+ * the original reports again.
+ *
+ * <pre>
+ * header:     int magic, short version, short reserved, int string count, int report count, long record count
+ * dictionary: per string, int byte length and UTF-8 bytes
+ * reports:    per report, int name index, long first record, int record count
+ * records:    fixed width, see {@link #RECORD_WIDTH}
+ * trailer:    long CRC32 of everything before it
+ * </pre>
+ */
+public class SnapshotWriter implements Closeable {
+
+    //  Identifies the file as a snapshot ("GDSN") and the layout of the file.  The version must be bumped whenever
+    //  the layout changes, including the ordinals of the enums stored in the records.
+    static final int MAGIC = 0x4744534E;
+    static final short VERSION = 2;
+
+    //  Each record is: byte record type, byte configurations (one bit per ordinal), byte resolution type, byte
+    //  reserved, followed by
+    //  string indexes for source, dependant groupId/artifactId, groupId/artifactId, specified/resolved version.
+    static final int RECORD_WIDTH = 32;
+    static final int HEADER_WIDTH = 24;
+    static final int NO_STRING = -1;
+    static final byte TYPE_PROJECT = 0;
+    static final byte TYPE_DEPENDENCY = 1;
+
+    //  Number of records buffered before being flushed to the temporary records file.
+    private static final int BUFFERED_RECORDS = 8192;
+
+    /**
+     * The snapshot file being written
+     */
+    private final Path file;
+
+    /**
+     * Records are written to a temporary file as reports are added, because the dictionary which precedes them
+     * isn't complete until the snapshot is closed.
+     */
+    private final Path recordsFile;
+    private final FileChannel records;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(RECORD_WIDTH * BUFFERED_RECORDS);
+
+    /**
+     * Every distinct string is stored once and referenced by its index.
+     */
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+
+    /**
+     * Name index, first record and record count for each report.
+     */
+    private final List<long[]> reports = new ArrayList<>();
+
+    private long recordCount;
+
+    /**
+     * Constructor
+     * @param file the snapshot file to create, replaced if it exists
+     * @throws IOException thrown if the temporary records file can't be created
+     */
+    public SnapshotWriter(final Path file) throws IOException {
+        this.file = file;
+        Path parent = file.toAbsolutePath().getParent();
+        recordsFile = Files.createTempFile(parent, file.getFileName().toString(), ".records");
+        records = FileChannel.open(recordsFile, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Add the parsed records of a single report to the snapshot
+     * @param name the name of the report, usually the file name
+     * @param reportRecords the records parsed from the report
+     * @throws IOException thrown if the records can't be written
+     */
+    public void addReport (final String name,
+                           final List<DependencyRecord> reportRecords) throws IOException {
+
+        reports.add(new long[] {indexOf(name), recordCount, reportRecords.size()});
+
+        for (DependencyRecord one : reportRecords) {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+
+            buffer.put(one.isProject() ? TYPE_PROJECT : TYPE_DEPENDENCY);
+            int configurations = 0;
+            for (ConfigurationType config : one.getConfigurations()) {
+                configurations |= 1 << config.ordinal();
+            }
+            buffer.put((byte) configurations);
+            buffer.put((byte) one.getResolutionType().ordinal());
+            buffer.put((byte) 0);
+            buffer.putInt(indexOf(one.getSource()));
+            buffer.putInt(indexOf(one.getDependantGroupId()));
+            buffer.putInt(indexOf(one.getDependantArtifactId()));
+            buffer.putInt(indexOf(one.getGroupId()));
+            buffer.putInt(indexOf(one.getArtifactId()));
+            buffer.putInt(indexOf(one.getSpecifiedVersion()));
+            buffer.putInt(indexOf(one.getResolvedVersion()));
+        }
+
+        recordCount += reportRecords.size();
+    }
+
+    /**
+     * Assemble the snapshot file from the dictionary, reports and the temporary records file.
+     * @throws IOException thrown if the snapshot can't be written
+     */
+    @Override
+    public void close() throws IOException {
+
+        try {
+            flush();
+            records.close();
+
+            CRC32 crc = new CRC32();
+            try (DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(Files.newOutputStream(file)), crc))) {
+                out.writeInt(MAGIC);
+                out.writeShort(VERSION);
+                out.writeShort(0);
+                out.writeInt(strings.size());
+                out.writeInt(reports.size());
+                out.writeLong(recordCount);
+
+                for (String one : strings) {
+                    byte[] bytes = one.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+
+                for (long[] one : reports) {
+                    out.writeInt((int) one[0]);
+                    out.writeLong(one[1]);
+                    out.writeInt((int) one[2]);
+                }
+
+                try (InputStream in = Files.newInputStream(recordsFile)) {
+                    byte[] chunk = new byte[RECORD_WIDTH * BUFFERED_RECORDS];
+                    int read;
+                    while ((read = in.read(chunk)) > 0) {
+                        out.write(chunk, 0, read);
+                    }
+                }
+
+                //  The checksum covers everything up to, but not including, itself.
+                out.flush();
+                out.writeLong(crc.getValue());
+            }
+        } finally {
+            Files.deleteIfExists(recordsFile);
+        }
+    }
+
+    /**
+     * Write the buffered records to the temporary records file.
+     */
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            records.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Find the dictionary index of a string, adding it when not previously seen.
+     * @param value the string, may be null
+     * @return the index of the string or NO_STRING for null
+     */
+    private int indexOf (final String value) {
+        if (value == null) {
+            return NO_STRING;
+        }
+
+        Integer index = dictionary.get(value);
+        if (index == null) {
+            index = strings.size();
+            dictionary.put(value, index);
+            strings.add(value);
+        }
+
+        return index;
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * @author Scott C Sosna
+ */
+package dev.scottsosna.neo4j.gradle;
+
+import dev.scottsosna.neo4j.gradle.node.Artifact;
+import dev.scottsosna.neo4j.gradle.parse.DependencyRecord;
+import dev.scottsosna.neo4j.gradle.parse.LockfileParser;
+import dev.scottsosna.neo4j.gradle.parse.ReportParser;
+import dev.scottsosna.neo4j.gradle.parse.StringPool;
+import dev.scottsosna.neo4j.gradle.relationship.ConfigurationType;
+import dev.scottsosna.neo4j.gradle.relationship.DependsOn;
+import dev.scottsosna.neo4j.gradle.sink.GraphSink;
+import dev.scottsosna.neo4j.gradle.sink.InMemoryGraphSink;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DependencyLoaderTest {
+
+    private static final List<String> APP = Arrays.asList(
+        "Root project 'app'",
+        "",
+        "compileClasspath - Compile classpath for source set 'main'.",
+        "+--- com.acme:lib:1.0",
+        "|    \\--- org.slf4j:slf4j-api:1.7.30",
+        "+--- org.springframework:spring-core:5.2.0",
+        "",
+        "runtimeClasspath - Runtime classpath of source set 'main'.",
+        "+--- com.acme:lib:1.0",
+        "|    \\--- org.slf4j:slf4j-api:1.7.30",
+        "+--- org.springframework:spring-core:5.2.0",
+        "");
+
+    private static final List<String> LIB = Arrays.asList(
+        "Root project 'lib'",
+        "",
+        "compileClasspath - Compile classpath for source set 'main'.",
+        "+--- org.slf4j:slf4j-api:1.7.30",
+        "+--- org.apache.commons:commons-lang3:3.9",
+        "");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private DependencyLoader loader;
+    private InMemoryGraphSink sink;
+
+    @Before
+    public void setUp() throws IOException {
+
+        File mapping = folder.newFile("mapping.txt");
+        Files.write(mapping.toPath(), Arrays.asList("com.acme=INTERNAL", "org.apache=APACHE"));
+
+        System.setProperty("loader.sink", "memory");
+        try {
+            loader = new DependencyLoader(mapping.getPath());
+        } finally {
+            System.clearProperty("loader.sink");
+        }
+        sink = new InMemoryGraphSink();
+    }
+
+    @After
+    public void tearDown() {
+        sink.close();
+    }
+
+    @Test
+    public void loadsArtifactsAndDependencies() {
+
+        load(APP);
+
+        assertEquals(new TreeSet<>(Arrays.asList("PROJECT:app", "com.acme:lib", "org.slf4j:slf4j-api", "org.springframework:spring-core")),
+                     coordinates());
+        assertEquals("INTERNAL", artifact("com.acme", "lib").getArtifactType());
+
+        //  The same dependency in two configurations is a single relationship with both.
+        assertEquals(3, sink.getDependencies().size());
+        DependsOn lib = dependency("app", "lib");
+        assertEquals(EnumSet.of(ConfigurationType.COMPILE, ConfigurationType.RUNTIME), lib.getConfigurations());
+        assertEquals("1.0", lib.getSpecifiedVersion());
+        assertEquals(new TreeSet<>(Arrays.asList("app")), lib.getSources());
+    }
+
+    @Test
+    public void reconcilesProjectsWithInternalArtifacts() {
+
+        load(APP);
+        load(LIB);
+        assertEquals(1, sink.reconcileProjects());
+
+        //  The lib project became the internal artifact, taking its dependencies with it.
+        assertEquals(new TreeSet<>(Arrays.asList("PROJECT:app", "com.acme:lib", "org.apache.commons:commons-lang3",
+                                                 "org.slf4j:slf4j-api", "org.springframework:spring-core")),
+                     coordinates());
+        Artifact lib = artifact("com.acme", "lib");
+        assertEquals(GraphSink.ARTIFACT_TYPE_PROJECT, lib.getArtifactType());
+        assertTrue(lib.getLabels().contains(GraphSink.ARTIFACT_TYPE_PROJECT));
+
+        DependsOn slf4j = dependency("lib", "slf4j-api");
+        assertEquals("com.acme", slf4j.getDependant().getGroupId());
+        assertEquals(new TreeSet<>(Arrays.asList("app", "lib")), slf4j.getSources());
+        assertEquals("com.acme", dependency("lib", "commons-lang3").getDependant().getGroupId());
+
+        //  Loading the project again and reconciling merges into the project, not a new artifact.
+        load(LIB);
+        assertEquals(1, sink.reconcileProjects());
+        assertEquals(5, coordinates().size());
+        assertEquals(0, sink.reconcileProjects());
+    }
+
+    @Test
+    public void reconcilesDependenciesBetweenProjects() {
+
+        //  app depends on the lib project directly, both projects with internal artifacts.
+        sink.begin();
+        Artifact app = sink.findOrCreateArtifact(DependencyRecord.PROJECT_GROUP_ID, "app", GraphSink.ARTIFACT_TYPE_PROJECT);
+        Artifact lib = sink.findOrCreateArtifact(DependencyRecord.PROJECT_GROUP_ID, "lib", GraphSink.ARTIFACT_TYPE_PROJECT);
+        sink.findOrCreateArtifact("com.acme", "app", "INTERNAL");
+        sink.findOrCreateArtifact("com.acme", "lib", "INTERNAL");
+        sink.findOrCreateDependsOn(lib, app, null, "1.0").addSource("app");
+        sink.commit();
+
+        assertEquals(2, sink.reconcileProjects());
+        assertEquals(new TreeSet<>(Arrays.asList("com.acme:app", "com.acme:lib")), coordinates());
+        assertEquals(1, sink.getDependencies().size());
+        DependsOn moved = dependency("app", "lib");
+        assertEquals("com.acme", moved.getDependant().getGroupId());
+        assertEquals("com.acme", moved.getDependee().getGroupId());
+    }
+
+    @Test
+    public void loadsLockfileConfigurationsTogether() {
+
+        List<DependencyRecord> records = new LockfileParser(new StringPool()).parse("svc", Arrays.asList(
+            "org.slf4j:slf4j-api:1.7.30=compileClasspath,runtimeClasspath,testRuntimeClasspath"));
+        sink.begin();
+        loader.load(sink, records);
+        sink.commit();
+
+        assertEquals(1, sink.getDependencies().size());
+        DependsOn slf4j = dependency("svc", "slf4j-api");
+        assertEquals(EnumSet.of(ConfigurationType.COMPILE, ConfigurationType.RUNTIME, ConfigurationType.TEST_RUNTIME),
+                     slf4j.getConfigurations());
+        assertEquals("1.7.30", slf4j.getResolvedVersion());
+    }
+
+    @Test
+    public void rejectsRouteToUndefinedTarget() throws IOException {
+        assertRejected(Arrays.asList("default.uri=bolt://localhost", "payments.uri=bolt://payments"),
+                       Arrays.asList("payments-=payments", "orders-=orders"), "undefined target orders");
+    }
+
+    @Test
+    public void rejectsTargetsWithoutDefault() throws IOException {
+        assertRejected(Arrays.asList("payments.uri=bolt://payments", "orders.uri=bolt://orders"),
+                       null, "No target named default");
+    }
+
+    @Test
+    public void rejectsRoutesWithSingleTarget() throws IOException {
+        assertRejected(Arrays.asList("payments.uri=bolt://payments"),
+                       Arrays.asList("payments-=payments"), "require more than one target");
+        assertRejected(null, Arrays.asList("payments-=default"), "require more than one target");
+    }
+
+    /**
+     * Create a loader with the targets and/or routes given, expecting it to be rejected before anything's loaded
+     */
+    private void assertRejected (final List<String> targets,
+                                 final List<String> routes,
+                                 final String message) throws IOException {
+
+        if (targets != null) {
+            File file = folder.newFile();
+            Files.write(file.toPath(), targets);
+            System.setProperty("loader.targets", file.getPath());
+        }
+        if (routes != null) {
+            File file = folder.newFile();
+            Files.write(file.toPath(), routes);
+            System.setProperty("loader.routes", file.getPath());
+        }
+
+        System.setProperty("loader.sink", "memory");
+        try {
+            new DependencyLoader(null);
+            fail("Loader created");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(message));
+        } finally {
+            System.clearProperty("loader.targets");
+            System.clearProperty("loader.routes");
+            System.clearProperty("loader.sink");
+        }
+    }
+
+    private void load (final List<String> report) {
+        List<DependencyRecord> records = new ReportParser(false, new StringPool()).parse(report);
+        sink.begin();
+        loader.load(sink, records);
+        sink.commit();
+    }
+
+    private Set<String> coordinates() {
+        return sink.getArtifacts().stream()
+                   .map(one -> one.getGroupId() + ":" + one.getArtifactId())
+                   .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    private Artifact artifact (final String groupId,
+                               final String artifactId) {
+        return sink.getArtifacts().stream()
+                   .filter(one -> one.getGroupId().equals(groupId) && one.getArtifactId().equals(artifactId))
+                   .findFirst().get();
+    }
+
+    private DependsOn dependency (final String dependant,
+                                  final String dependee) {
+        return sink.getDependencies().stream()
+                   .filter(one -> one.getDependant().getArtifactId().equals(dependant) &&
+                                  one.getDependee().getArtifactId().equals(dependee))
+                   .findFirst().get();
+    }
+}
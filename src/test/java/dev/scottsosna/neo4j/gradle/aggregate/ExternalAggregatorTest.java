@@ -0,0 +1,118 @@
+/*
+ * @author Scott C Sosna
+ */
+package dev.scottsosna.neo4j.gradle.aggregate;
+
+import dev.scottsosna.neo4j.gradle.parse.DependencyRecord;
+import dev.scottsosna.neo4j.gradle.relationship.ConfigurationType;
+import dev.scottsosna.neo4j.gradle.relationship.ResolutionType;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ExternalAggregatorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void spilledRunsMergeSameAsMemory() throws IOException {
+
+        List<String> inMemory = aggregate(Long.MAX_VALUE, 0);
+        List<String> spilled = aggregate(0, 1);
+
+        assertEquals(inMemory, spilled);
+        assertEquals(0, folder.getRoot().listFiles().length);
+    }
+
+    @Test
+    public void multiPassMergeSameAsMemory() throws IOException {
+
+        List<String> inMemory = aggregate(Long.MAX_VALUE, 0);
+        for (int maxFanIn : new int[] {2, 3, 5}) {
+            assertEquals("fan-in " + maxFanIn, inMemory, aggregate(new ExternalAggregator(0, folder.getRoot().toPath(), maxFanIn), 6));
+            assertEquals(0, folder.getRoot().listFiles().length);
+        }
+    }
+
+    @Test
+    public void mergeUnionsAcrossRuns() throws IOException {
+
+        try (ExternalAggregator aggregator = new ExternalAggregator(0, folder.getRoot().toPath())) {
+            for (DependencyRecord one : records()) {
+                aggregator.add(one);
+            }
+
+            List<AggregatedDependency> merged = new ArrayList<>();
+            aggregator.merged().forEachRemaining(merged::add);
+
+            AggregatedDependency jcl = merged.stream().filter(one -> "spring-jcl".equals(one.getArtifactId())).findFirst().get();
+            assertEquals(EnumSet.of(ConfigurationType.COMPILE, ConfigurationType.RUNTIME), jcl.getConfigurations());
+            assertEquals(new TreeSet<>(Arrays.asList("app", "batch")), new TreeSet<>(jcl.getSources()));
+            assertEquals(1, merged.stream().filter(one -> "spring-jcl".equals(one.getArtifactId())).count());
+        }
+    }
+
+    /**
+     * @return the dependencies aggregated within the budget, described in the order merged
+     */
+    private List<String> aggregate (final long memoryBudget,
+                                    final int minimumRuns) throws IOException {
+        return aggregate(new ExternalAggregator(memoryBudget, folder.getRoot().toPath()), minimumRuns);
+    }
+
+    private List<String> aggregate (final ExternalAggregator aggregator,
+                                    final int minimumRuns) throws IOException {
+
+        List<String> toReturn = new ArrayList<>();
+        try (aggregator) {
+            for (DependencyRecord one : records()) {
+                aggregator.add(one);
+            }
+            assertTrue(aggregator.getRunCount() >= minimumRuns);
+
+            Iterator<AggregatedDependency> merged = aggregator.merged();
+            while (merged.hasNext()) {
+                AggregatedDependency one = merged.next();
+                toReturn.add(one.getDependantGroupId() + ":" + one.getDependantArtifactId() + " -> " +
+                             one.getGroupId() + ":" + one.getArtifactId() + " " + one.getSpecifiedVersion() + "/" +
+                             one.getResolvedVersion() + " " + one.getConfigurations() + " " +
+                             one.getResolutionTypes() + " " + new TreeSet<>(one.getSources()));
+            }
+        }
+
+
+        return toReturn;
+    }
+
+    private static List<DependencyRecord> records() {
+
+        List<DependencyRecord> toReturn = new ArrayList<>();
+        for (String source : Arrays.asList("app", "batch")) {
+            ConfigurationType config = "app".equals(source) ? ConfigurationType.COMPILE : ConfigurationType.RUNTIME;
+            DependencyRecord project = DependencyRecord.project(source);
+            DependencyRecord core = DependencyRecord.dependency(project, "org.springframework", "spring-core", "5.2.0", null,
+                                                                config, ResolutionType.NORMAL, source);
+            toReturn.add(project);
+            toReturn.add(core);
+            toReturn.add(DependencyRecord.dependency(core, "org.springframework", "spring-jcl", "5.2.0", null,
+                                                     config, ResolutionType.NORMAL, source));
+            toReturn.add(DependencyRecord.dependency(project, "org.slf4j", "slf4j-api", "1.7.25", "1.7.30",
+                                                     ConfigurationType.TEST_RUNTIME, ResolutionType.NORMAL, source));
+        }
+
+
+        return toReturn;
+    }
+}
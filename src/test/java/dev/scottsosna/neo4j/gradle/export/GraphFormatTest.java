@@ -0,0 +1,107 @@
+/*
+ * @author Scott C Sosna
+ */
+package dev.scottsosna.neo4j.gradle.export;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class GraphFormatTest {
+
+    //  Values with every character needing escaping in one format or another
+    private static final String GROUP_ID = "com.acme \"quoted\" \\ <tag> & 'apos'";
+    private static final String ARTIFACT_ID = "line\nbreak\ttab";
+
+    @Test
+    public void createsByName() {
+        StringWriter out = new StringWriter();
+        assertTrue(GraphFormat.create("dot", out) instanceof DotFormat);
+        assertTrue(GraphFormat.create("GV", out) instanceof DotFormat);
+        assertTrue(GraphFormat.create("graphml", out) instanceof GraphMLFormat);
+        assertTrue(GraphFormat.create("jsonl", out) instanceof JsonLinesFormat);
+        assertTrue(GraphFormat.create("json", out) instanceof JsonLinesFormat);
+        assertNull(GraphFormat.create("csv", out));
+    }
+
+    @Test
+    public void escapesDot() throws IOException {
+        String written = export("dot");
+        assertTrue(written, written.contains("n1 [label=\"com.acme \\\"quoted\\\" \\\\ <tag> & 'apos':line\nbreak\ttab\""));
+        assertTrue(written, written.contains("n1 -> n2 [label=\"1.0 -> 2.0\", configurations=\"COMPILE,RUNTIME\""));
+    }
+
+    @Test
+    public void omitsDotLabelWithoutVersions() throws IOException {
+
+        Map<String, Object> relationship = new HashMap<>();
+        relationship.put(GraphFormat.DEPENDANT, 1L);
+        relationship.put(GraphFormat.DEPENDEE, 2L);
+
+        StringWriter out = new StringWriter();
+        GraphFormat.create("dot", out).relationship(relationship);
+        assertEquals("  n1 -> n2 [configurations=\"\", resolutionTypes=\"\", sources=\"\"];\n", out.toString());
+
+        relationship.put(GraphFormat.RESOLVED_VERSION, "2.0");
+        out.getBuffer().setLength(0);
+        GraphFormat.create("dot", out).relationship(relationship);
+        assertTrue(out.toString(), out.toString().contains("[label=\"-> 2.0\", "));
+    }
+
+    @Test
+    public void escapesGraphML() throws IOException {
+        String written = export("graphml");
+        assertTrue(written, written.contains("<data key=\"groupId\">com.acme &quot;quoted&quot; \\ &lt;tag&gt; &amp; 'apos'</data>"));
+        assertTrue(written, written.contains("<edge id=\"e7\" source=\"n1\" target=\"n2\">"));
+        assertTrue(written, written.endsWith("</graphml>\n"));
+    }
+
+    @Test
+    public void escapesJsonLines() throws IOException {
+        String[] lines = export("jsonl").split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("{\"type\":\"node\",\"id\":1,\"groupId\":\"com.acme \\\"quoted\\\" \\\\ <tag> & 'apos'\"," +
+                     "\"artifactId\":\"line\\u000abreak\\u0009tab\",\"artifactType\":null,\"labels\":[\"Artifact\",\"INTERNAL\"]}",
+                     lines[0]);
+        assertEquals("{\"type\":\"relationship\",\"id\":7,\"dependant\":1,\"dependee\":2,\"specifiedVersion\":\"1.0\"," +
+                     "\"resolvedVersion\":\"2.0\",\"configurations\":[\"COMPILE\",\"RUNTIME\"],\"resolutionTypes\":[]," +
+                     "\"sources\":[\"app \\\"x\\\"\"]}",
+                     lines[1]);
+    }
+
+    private static String export (final String formatName) throws IOException {
+
+        Map<String, Object> node = new HashMap<>();
+        node.put(GraphFormat.ID, 1L);
+        node.put(GraphFormat.GROUP_ID, GROUP_ID);
+        node.put(GraphFormat.ARTIFACT_ID, ARTIFACT_ID);
+        node.put(GraphFormat.LABELS, new String[] {"Artifact", "INTERNAL"});
+
+        Map<String, Object> relationship = new HashMap<>();
+        relationship.put(GraphFormat.ID, 7L);
+        relationship.put(GraphFormat.DEPENDANT, 1L);
+        relationship.put(GraphFormat.DEPENDEE, 2L);
+        relationship.put(GraphFormat.SPECIFIED_VERSION, "1.0");
+        relationship.put(GraphFormat.RESOLVED_VERSION, "2.0");
+        relationship.put(GraphFormat.CONFIGURATIONS, Arrays.asList("COMPILE", "RUNTIME"));
+        relationship.put(GraphFormat.SOURCES, new String[] {"app \"x\""});
+
+        StringWriter out = new StringWriter();
+        GraphFormat format = GraphFormat.create(formatName, out);
+        format.begin();
+        format.node(node);
+        format.relationship(relationship);
+        format.end();
+
+
+        return out.toString();
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * @author Scott C Sosna
+ */
+package dev.scottsosna.neo4j.gradle.parse;
+
+import dev.scottsosna.neo4j.gradle.relationship.ConfigurationType;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LockfileParserTest {
+
+    @Test
+    public void recognizesLockfiles() {
+        assertTrue(LockfileParser.isLockfile(new File("gradle.lockfile")));
+        assertTrue(LockfileParser.isLockfile(new File("svc/buildscript-gradle.lockfile")));
+        assertFalse(LockfileParser.isLockfile(new File("service-01.txt")));
+    }
+
+    @Test
+    public void projectNameFromFileOrDirectory() {
+        assertEquals("my-service", LockfileParser.projectName(new File("my-service.gradle.lockfile")));
+        assertEquals("my-service", LockfileParser.projectName(new File("my-service-buildscript-gradle.lockfile")));
+        assertEquals("payments", LockfileParser.projectName(new File("payments.lockfile")));
+        assertEquals("svc-x", LockfileParser.projectName(new File("/work/svc-x/gradle.lockfile")));
+        assertEquals("svc-x", LockfileParser.projectName(new File("/work/svc-x/buildscript-gradle.lockfile")));
+    }
+
+    @Test
+    public void parsesAllConfigurationsIntoOneRecord() {
+
+        List<String> lines = Arrays.asList(
+            "# This is a Gradle generated file for dependency locking.",
+            "# Manual edits can break the build and are not advised.",
+            "",
+            "com.fasterxml.jackson.core:jackson-core:2.11.0=compileClasspath,runtimeClasspath",
+            "org.slf4j:slf4j-api:1.7.30=annotationProcessor,testRuntimeClasspath",
+            "com.google.code.findbugs:jsr305:3.0.2=annotationProcessor",
+            "not-a-dependency",
+            "empty=testCompileClasspath");
+
+        List<DependencyRecord> records = new LockfileParser(new StringPool()).parse("svc-x", lines);
+        assertEquals(3, records.size());
+
+        assertTrue(records.get(0).isProject());
+        assertEquals(DependencyRecord.PROJECT_GROUP_ID, records.get(0).getGroupId());
+        assertEquals("svc-x", records.get(0).getArtifactId());
+
+        assertEquals(EnumSet.of(ConfigurationType.COMPILE, ConfigurationType.RUNTIME), records.get(1).getConfigurations());
+        assertEquals(EnumSet.of(ConfigurationType.TEST_RUNTIME), records.get(2).getConfigurations());
+
+        DependencyRecord one = records.get(1);
+        assertEquals("com.fasterxml.jackson.core", one.getGroupId());
+        assertEquals("jackson-core", one.getArtifactId());
+        assertNull(one.getSpecifiedVersion());
+        assertEquals("2.11.0", one.getResolvedVersion());
+        assertEquals(DependencyRecord.PROJECT_GROUP_ID, one.getDependantGroupId());
+        assertEquals("svc-x", one.getDependantArtifactId());
+        assertEquals("svc-x", one.getSource());
+    }
+}
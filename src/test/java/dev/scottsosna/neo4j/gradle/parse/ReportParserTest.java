@@ -0,0 +1,129 @@
+/*
+ * @author Scott C Sosna
+ */
+package dev.scottsosna.neo4j.gradle.parse;
+
+import dev.scottsosna.neo4j.gradle.generator.ReportGenerator;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ReportParserTest {
+
+    private static final List<String> REPORT = Arrays.asList(
+        "",
+        "------------------------------------------------------------",
+        "Root project 'app'",
+        "------------------------------------------------------------",
+        "",
+        "compileClasspath - Compile classpath for source set 'main'.",
+        "+--- org.springframework:spring-core:5.2.0.RELEASE",
+        "|    \\--- org.springframework:spring-jcl:5.2.0.RELEASE",
+        "+--- com.fasterxml.jackson.core:jackson-databind:2.10.0 -> 2.11.0",
+        "|    +--- com.fasterxml.jackson.core:jackson-annotations:2.11.0",
+        "|    \\--- com.fasterxml.jackson.core:jackson-core:2.11.0",
+        "+--- com.acme:lib -> 1.0",
+        "",
+        "implementation - Implementation only dependencies for source set 'main'. (n)",
+        "\\--- com.acme:lib (n)",
+        "",
+        "------------------------------------------------------------",
+        "Project ':lib'",
+        "------------------------------------------------------------",
+        "",
+        "runtimeClasspath - Runtime classpath of source set 'main'.",
+        "+--- org.slf4j:slf4j-api:1.7.30",
+        "");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void parsesRecordForRecord() {
+
+        List<String> expected = Arrays.asList(
+            "project PROJECT:app",
+            "COMPILE PROJECT:app -> org.springframework:spring-core 5.2.0.RELEASE/null NORMAL app",
+            "COMPILE org.springframework:spring-core -> org.springframework:spring-jcl 5.2.0.RELEASE/null NORMAL app",
+            "COMPILE PROJECT:app -> com.fasterxml.jackson.core:jackson-databind 2.10.0/2.11.0 NORMAL app",
+            "COMPILE com.fasterxml.jackson.core:jackson-databind -> com.fasterxml.jackson.core:jackson-annotations 2.11.0/null NORMAL app",
+            "COMPILE com.fasterxml.jackson.core:jackson-databind -> com.fasterxml.jackson.core:jackson-core 2.11.0/null NORMAL app",
+            "COMPILE PROJECT:app -> com.acme:lib 1.0/null NORMAL app",
+            "project PROJECT::lib",
+            "RUNTIME PROJECT::lib -> org.slf4j:slf4j-api 1.7.30/null NORMAL :lib");
+
+        assertEquals(expected, describe(new ReportParser(false, new StringPool()).parse(REPORT)));
+    }
+
+    @Test
+    public void parallelMatchesSequential() throws Exception {
+
+        File[] reports = generate(6, 30);
+        assertEquals(6, reports.length);
+
+        //  The generated reports are too small to split by default, so split them into small sections.
+        ReportParser sequential = new ReportParser(false, new StringPool());
+        ReportParser parallel = new ReportParser(true, new StringPool(), 64);
+        for (File one : reports) {
+            List<String> lines = Files.readAllLines(one.toPath());
+            assertTrue(one.getName(), parallel.scanSections(lines).size() > 1);
+
+            List<String> expected = describe(sequential.parse(lines));
+            assertTrue(expected.size() > 100);
+            assertEquals(one.getName(), expected, describe(parallel.parse(lines)));
+        }
+    }
+
+    @Test
+    public void splitsLargeReports() throws Exception {
+
+        List<String> lines = Files.readAllLines(generate(1, 300)[0].toPath());
+        ReportParser parallel = new ReportParser(true, new StringPool());
+        assertTrue(parallel.scanSections(lines).size() > 1);
+
+        assertEquals(describe(new ReportParser(false, new StringPool()).parse(lines)), describe(parallel.parse(lines)));
+    }
+
+    /**
+     * @return the reports generated, libraries among them so there are multiple projects per report
+     */
+    private File[] generate (final int projects,
+                             final int dependencies) throws Exception {
+
+        System.setProperty("generator.projects", String.valueOf(projects));
+        System.setProperty("generator.artifacts", "2000");
+        System.setProperty("generator.dependencies", String.valueOf(dependencies));
+        System.setProperty("generator.internal", "0.5");
+        try {
+            new ReportGenerator().generate(folder.getRoot());
+        } finally {
+            System.clearProperty("generator.projects");
+            System.clearProperty("generator.artifacts");
+            System.clearProperty("generator.dependencies");
+            System.clearProperty("generator.internal");
+        }
+
+
+        return folder.getRoot().listFiles();
+    }
+
+    private static List<String> describe (final List<DependencyRecord> records) {
+        return records.stream().map(one -> one.isProject() ?
+                                           "project " + one.getGroupId() + ":" + one.getArtifactId() :
+                                           String.join(",", one.getConfigurations().stream().map(Enum::name).toArray(String[]::new)) + " " +
+                                           one.getDependantGroupId() + ":" + one.getDependantArtifactId() + " -> " +
+                                           one.getGroupId() + ":" + one.getArtifactId() + " " +
+                                           one.getSpecifiedVersion() + "/" + one.getResolvedVersion() + " " +
+                                           one.getResolutionType() + " " + one.getSource())
+                      .collect(Collectors.toList());
+    }
+}
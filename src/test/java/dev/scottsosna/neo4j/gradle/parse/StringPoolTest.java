@@ -0,0 +1,71 @@
+/*
+ * @author Scott C Sosna
+ */
+package dev.scottsosna.neo4j.gradle.parse;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class StringPoolTest {
+
+    @Test
+    public void internsByOffset() {
+
+        StringPool pool = new StringPool();
+        String first = pool.intern("+--- org.slf4j:slf4j-api:1.7.30", 5, 14);
+        String second = pool.intern("org.slf4j", 0, 9);
+
+        assertEquals("org.slf4j", first);
+        assertSame(first, second);
+        assertSame(first, pool.intern(new String("org.slf4j")));
+        assertEquals(1, pool.size());
+        assertEquals(2, pool.getHits());
+        assertEquals(1, pool.getMisses());
+    }
+
+    @Test
+    public void keepsDistinctValues() {
+
+        StringPool pool = new StringPool();
+        List<String> values = IntStream.range(0, 10000).mapToObj(i -> "artifact-" + i).collect(Collectors.toList());
+        values.forEach(pool::intern);
+
+        assertEquals(values.size(), pool.size());
+        for (String one : values) {
+            String copy = new String(one);
+            assertNotSame(one, copy);
+            assertSame(one, pool.intern(copy));
+        }
+    }
+
+    @Test
+    public void sharedByParsers() {
+
+        List<String> report = Arrays.asList(
+            "Root project 'app'",
+            "compileClasspath - Compile classpath for source set 'main'.",
+            "+--- org.springframework:spring-core:5.2.0.RELEASE",
+            "|    \\--- org.springframework:spring-jcl:5.2.0.RELEASE",
+            "+--- org.slf4j:slf4j-api:1.7.30",
+            "");
+
+        StringPool pool = new StringPool();
+        List<DependencyRecord> first = new ReportParser(false, pool).parse(report);
+        List<DependencyRecord> second = new ReportParser(true, pool).parse(new ArrayList<>(report));
+
+        assertEquals(4, first.size());
+        for (int i = 0; i < first.size(); i++) {
+            assertSame(first.get(i).getGroupId(), second.get(i).getGroupId());
+            assertSame(first.get(i).getArtifactId(), second.get(i).getArtifactId());
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * @author Scott C Sosna
+ */
+package dev.scottsosna.neo4j.gradle.query;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class LruCacheTest {
+
+    @Test
+    public void hitsUntilExpired() {
+
+        AtomicInteger loads = new AtomicInteger();
+        LruCache<String, Integer> cache = new LruCache<>(10, Long.MAX_VALUE);
+        assertEquals(1, (int) cache.get("a", loads::incrementAndGet));
+        assertEquals(1, (int) cache.get("a", loads::incrementAndGet));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.5, cache.getHitRate(), 0.0);
+
+        LruCache<String, Integer> expiring = new LruCache<>(10, 0);
+        assertEquals(2, (int) expiring.get("a", loads::incrementAndGet));
+        assertEquals(3, (int) expiring.get("a", loads::incrementAndGet));
+        assertEquals(0, expiring.getHits());
+        assertEquals(1, expiring.size());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+
+        LruCache<String, String> cache = new LruCache<>(2, Long.MAX_VALUE);
+        cache.get("a", () -> "a1");
+        cache.get("b", () -> "b1");
+        cache.get("a", () -> "a2");
+        cache.get("c", () -> "c1");
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertEquals("a1", cache.get("a", () -> "a3"));
+        assertEquals("b2", cache.get("b", () -> "b2"));
+    }
+
+    @Test
+    public void invalidateAllDiscardsEverything() {
+
+        LruCache<String, String> cache = new LruCache<>(10, Long.MAX_VALUE);
+        cache.get("a", () -> "a1");
+        cache.invalidateAll();
+
+        assertEquals(0, cache.size());
+        assertEquals("a2", cache.get("a", () -> "a2"));
+    }
+
+    @Test
+    public void loadRacingInvalidationIsNotCached() {
+
+        LruCache<String, String> cache = new LruCache<>(10, Long.MAX_VALUE);
+        String stale = cache.get("a", () -> {
+            cache.invalidateAll();
+            return "stale";
+        });
+
+        assertEquals("stale", stale);
+        assertEquals(0, cache.size());
+        assertEquals("fresh", cache.get("a", () -> "fresh"));
+        assertEquals("fresh", cache.get("a", () -> "again"));
+    }
+}
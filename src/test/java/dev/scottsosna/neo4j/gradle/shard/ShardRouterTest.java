@@ -0,0 +1,74 @@
+/*
+ * @author Scott C Sosna
+ */
+package dev.scottsosna.neo4j.gradle.shard;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ShardRouterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void firstMatchingRouteWins() throws IOException {
+
+        File routes = folder.newFile("routes.txt");
+        Files.write(routes.toPath(), Arrays.asList(
+            "# payments services get their own database",
+            "",
+            "payments-ledger=ledger",
+            "payments-=payments",
+            " search = search ",
+            "malformed"));
+
+        ShardRouter router = ShardRouter.load(routes);
+        assertEquals(3, router.getRoutes().length);
+        assertEquals("ledger", router.route("payments-ledger-api"));
+        assertEquals("payments", router.route("payments-gateway"));
+        assertEquals("search", router.route("search-indexer"));
+        assertEquals(ShardTarget.DEFAULT_NAME, router.route("orders"));
+    }
+
+    @Test
+    public void loadsTargets() throws IOException {
+
+        File targets = folder.newFile("targets.properties");
+        Files.write(targets.toPath(), Arrays.asList(
+            "default.uri=bolt://localhost",
+            "payments.uri=bolt://payments:7687",
+            "payments.database=payments",
+            "payments.pool=50",
+            "orphan.pool=10"));
+
+        Map<String, ShardTarget> loaded = ShardTarget.load(targets);
+        assertEquals(Arrays.asList(ShardTarget.DEFAULT_NAME, "payments"), Arrays.asList(loaded.keySet().toArray()));
+        assertEquals("payments (bolt://payments:7687/payments)", loaded.get("payments").toString());
+    }
+
+    @Test
+    public void rejectsInvalidPoolSize() throws IOException {
+
+        File targets = folder.newFile("targets.properties");
+        Files.write(targets.toPath(), Arrays.asList("payments.uri=bolt://payments", "payments.pool=lots"));
+
+        try {
+            ShardTarget.load(targets);
+            fail("Pool size isn't a number");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("payments.pool"));
+        }
+    }
+}
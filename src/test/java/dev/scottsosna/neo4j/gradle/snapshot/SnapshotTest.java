@@ -0,0 +1,154 @@
+/*
+ * @author Scott C Sosna
+ */
+package dev.scottsosna.neo4j.gradle.snapshot;
+
+import dev.scottsosna.neo4j.gradle.parse.DependencyRecord;
+import dev.scottsosna.neo4j.gradle.parse.LockfileParser;
+import dev.scottsosna.neo4j.gradle.parse.StringPool;
+import dev.scottsosna.neo4j.gradle.relationship.ConfigurationType;
+import dev.scottsosna.neo4j.gradle.relationship.ResolutionType;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTrips() throws IOException {
+
+        List<DependencyRecord> first = first();
+        List<DependencyRecord> second = new LockfileParser(new StringPool()).parse("svc-x", Arrays.asList(
+            "org.slf4j:slf4j-api:1.7.30=compileClasspath,runtimeClasspath",
+            "com.acme:lib:1.0=testRuntimeClasspath"));
+
+        Path file = write(first, second);
+        assertTrue(SnapshotReader.isSnapshot(file.toFile()));
+
+        try (SnapshotReader reader = new SnapshotReader(file)) {
+            assertEquals(3, reader.getReportCount());
+            assertEquals("first.txt", reader.getReportName(0));
+            assertEquals("empty.txt", reader.getReportName(1));
+            assertEquals("svc-x/gradle.lockfile", reader.getReportName(2));
+
+            assertEquals(describe(first), describe(reader.readReport(0)));
+            assertEquals(Collections.emptyList(), reader.readReport(1));
+            assertEquals(describe(second), describe(reader.readReport(2)));
+
+            //  Every string is decoded once and shared by every record referencing it.
+            List<DependencyRecord> replayed = reader.readReport(0);
+            assertSame(replayed.get(0).getSource(), replayed.get(1).getSource());
+        }
+    }
+
+    @Test
+    public void rejectsCorruptSnapshot() throws IOException {
+
+        Path file = write(first());
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            long offset = raf.length() - Long.BYTES - 3;
+            raf.seek(offset);
+            int value = raf.read();
+            raf.seek(offset);
+            raf.write(value ^ 0xFF);
+        }
+
+        assertRejected(file, "checksum");
+    }
+
+    @Test
+    public void rejectsTruncatedSnapshot() throws IOException {
+
+        Path file = write(first());
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(raf.length() - 1);
+        }
+
+        assertRejected(file, "");
+    }
+
+    @Test
+    public void rejectsOtherVersion() throws IOException {
+
+        Path file = write(first());
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(Integer.BYTES);
+            raf.writeShort(SnapshotWriter.VERSION + 1);
+        }
+
+        assertRejected(file, "version");
+    }
+
+    @Test
+    public void rejectsReports() throws IOException {
+
+        File report = folder.newFile("service-01.txt");
+        Files.write(report.toPath(), Arrays.asList("Root project 'service-01'"));
+
+        assertFalse(SnapshotReader.isSnapshot(report));
+        assertRejected(report.toPath(), "not a dependency snapshot");
+    }
+
+    @SafeVarargs
+    private final Path write (final List<DependencyRecord>... reports) throws IOException {
+
+        Path file = folder.getRoot().toPath().resolve("reports.snapshot");
+        try (SnapshotWriter writer = new SnapshotWriter(file)) {
+            writer.addReport("first.txt", reports[0]);
+            if (reports.length > 1) {
+                writer.addReport("empty.txt", Collections.emptyList());
+                writer.addReport("svc-x/gradle.lockfile", reports[1]);
+            }
+        }
+
+
+        return file;
+    }
+
+    private static void assertRejected (final Path file,
+                                        final String message) {
+        try {
+            new SnapshotReader(file).close();
+            fail(file + " was read");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(message));
+        }
+    }
+
+    private static List<DependencyRecord> first() {
+        DependencyRecord project = DependencyRecord.project("app");
+        DependencyRecord core = DependencyRecord.dependency(project, "org.springframework", "spring-core", "5.2.0", null,
+                                                            ConfigurationType.COMPILE, ResolutionType.NORMAL, "app");
+        return Arrays.asList(project, core,
+                             DependencyRecord.dependency(core, "org.springframework", "spring-jcl", "5.1.0", "5.2.0",
+                                                         ConfigurationType.BUILDSCRIPT, ResolutionType.NORMAL, "app"));
+    }
+
+    private static List<String> describe (final List<DependencyRecord> records) {
+        return records.stream().map(one -> one.isProject() + " " + one.getDependantGroupId() + ":" +
+                                           one.getDependantArtifactId() + " -> " + one.getGroupId() + ":" +
+                                           one.getArtifactId() + " " + one.getSpecifiedVersion() + "/" +
+                                           one.getResolvedVersion() + " " + one.getConfigurations() + " " +
+                                           one.getResolutionType() + " " + one.getSource())
+                      .collect(Collectors.toList());
+    }
+}